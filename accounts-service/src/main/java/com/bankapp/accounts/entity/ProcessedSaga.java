@@ -0,0 +1,65 @@
+package com.bankapp.accounts.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала обработанных Saga запросов (идемпотентность по sagaId).
+ * Хранит отправленный ответ, чтобы при повторной доставке запроса повторить его.
+ */
+@Entity
+@Table(name = "processed_sagas", schema = "accounts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessedSaga implements Persistable<String> {
+
+    @Id
+    @Column(name = "saga_id", length = 36)
+    private String sagaId;
+
+    @Column(name = "response_event_type", nullable = false, length = 50)
+    private String responseEventType;
+
+    @Column(name = "response_payload", nullable = false)
+    private byte[] responsePayload;
+
+    @Column(name = "response_content_type", nullable = false, length = 50)
+    private String responseContentType;
+
+    @Column(name = "processed_at", nullable = false, updatable = false)
+    private LocalDateTime processedAt;
+
+    /**
+     * Записи только добавляются: save() выполняет INSERT без предварительного SELECT.
+     */
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @Override
+    public String getId() {
+        return sagaId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    protected void markNotNew() {
+        isNew = false;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        processedAt = LocalDateTime.now();
+    }
+}
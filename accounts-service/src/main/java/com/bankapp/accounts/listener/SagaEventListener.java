@@ -1,161 +1,215 @@
 package com.bankapp.accounts.listener;
 
-import com.bankapp.accounts.entity.OutboxEvent;
-import com.bankapp.accounts.entity.SagaEventType;
-import com.bankapp.accounts.event.BalanceUpdateFailedEvent;
-import com.bankapp.accounts.event.BalanceUpdateRequestedEvent;
-import com.bankapp.accounts.event.BalanceUpdatedEvent;
-import com.bankapp.accounts.exception.AccountNotFoundException;
-import com.bankapp.accounts.exception.InsufficientFundsException;
-import com.bankapp.accounts.exception.UserNotFoundException;
-import com.bankapp.accounts.repository.OutboxEventRepository;
-import com.bankapp.accounts.service.AccountService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.nats.client.Connection;
-import io.nats.client.Dispatcher;
+import com.bankapp.accounts.service.SagaBalanceUpdateHandler;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.listener.KeyedLaneExecutor;
+import com.bankapp.saga.messaging.JetStreamSupport;
+import com.bankapp.saga.messaging.SagaSubscriber;
+import com.bankapp.saga.tracing.SagaTracing;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import io.nats.client.Message;
-import io.nats.client.Nats;
 import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Слушатель Saga событий из cash-service через NATS.
  * Обрабатывает запросы на обновление баланса и отправляет ответы через Outbox.
+ *
+ * Dispatcher только десериализует сообщение и передаёт его в {@link KeyedLaneExecutor}:
+ * запросы одного пользователя обрабатываются последовательно, разных - параллельно.
+ * Полоса собирает запросы в пачку и обрабатывает её одной транзакцией
+ * {@link SagaBalanceUpdateHandler#processBatch}.
+ *
+ * В режиме JetStream запросы читаются durable pull consumer пачками, а сообщение
+ * подтверждается только после коммита его обработки; неподтверждённое будет доставлено
+ * повторно (дубликаты отсекает журнал обработанных Saga).
+ *
+ * Метрики: saga.listener.queue.depth (запросы в полосах), saga.listener.processing
+ * (время обработки пачки; mode=batch - одной транзакцией, individual - по одному
+ * после ошибки пачки), saga.listener.batch.size.
+ *
+ * Трассировка: сообщение получает span, продолжающий трассу отправителя (traceparent);
+ * span завершается после подтверждения обработки.
  */
 @Service
 @Slf4j
 public class SagaEventListener {
 
-    private final Connection natsConnection;
-    private final ObjectMapper objectMapper;
-    private final AccountService accountService;
-    private final OutboxEventRepository outboxEventRepository;
+    private static final String LISTENER_NAME = "balance-update-requested";
+
+    private final SagaSubscriber sagaSubscriber;
+    private final SagaEventCodec sagaEventCodec;
+    private final SagaBalanceUpdateHandler sagaBalanceUpdateHandler;
+    private final SagaTracing sagaTracing;
+    private final KeyedLaneExecutor<InboundRequest> laneExecutor;
+    private final Timer batchTimer;
+    private final Timer individualTimer;
+    private final DistributionSummary batchSizeSummary;
 
     public SagaEventListener(
             @Value("${nats.url:nats://localhost:4222}") String natsConnectionUrl,
             @Value("${application.saga.topics.balance-update-requested:saga.balance.update.requested}") String requestTopic,
-            ObjectMapper objectMapper,
-            AccountService accountService,
-            OutboxEventRepository outboxEventRepository) throws IOException, InterruptedException {
-
-        this.objectMapper = objectMapper;
-        this.accountService = accountService;
-        this.outboxEventRepository = outboxEventRepository;
-
-        // Подключаемся к NATS и создаем Dispatcher
-        this.natsConnection = Nats.connect(natsConnectionUrl);
-        Dispatcher dispatcher = natsConnection.createDispatcher(this::handleMessage);
-        dispatcher.subscribe(requestTopic);
-
-        log.info("NATS Saga Event Listener started. Subscribed to: {}", requestTopic);
+            @Value("${application.saga.listener.lanes:8}") int lanes,
+            @Value("${application.saga.listener.queue-capacity:1000}") int queueCapacity,
+            @Value("${application.saga.listener.virtual-threads:true}") boolean virtualThreads,
+            @Value("${application.saga.listener.batch-size:50}") int batchSize,
+            @Value("${application.saga.listener.batch-linger:PT0.005s}") Duration batchLinger,
+            @Value("${application.saga.jetstream.durable:accounts-balance-update-requested}") String durable,
+            @Value("${application.saga.jetstream.fetch-batch:100}") int fetchBatch,
+            @Value("${application.saga.jetstream.fetch-wait:PT0.5s}") Duration fetchWait,
+            SagaEventCodec sagaEventCodec,
+            SagaBalanceUpdateHandler sagaBalanceUpdateHandler,
+            JetStreamSupport jetStreamSupport,
+            SagaTracing sagaTracing,
+            MeterRegistry meterRegistry) throws IOException, InterruptedException {
+
+        this.sagaEventCodec = sagaEventCodec;
+        this.sagaBalanceUpdateHandler = sagaBalanceUpdateHandler;
+        this.sagaTracing = sagaTracing;
+        this.laneExecutor = new KeyedLaneExecutor<>("saga-lane", lanes, queueCapacity, virtualThreads,
+                batchSize, batchLinger, this::processBatch);
+
+        Gauge.builder("saga.listener.queue.depth", laneExecutor, KeyedLaneExecutor::queuedCount)
+                .description("Saga requests waiting in listener lanes")
+                .tag("listener", LISTENER_NAME)
+                .register(meterRegistry);
+        this.batchTimer = processingTimer(meterRegistry, "batch");
+        this.individualTimer = processingTimer(meterRegistry, "individual");
+        this.batchSizeSummary = DistributionSummary.builder("saga.listener.batch.size")
+                .description("Saga requests per processed batch")
+                .tag("listener", LISTENER_NAME)
+                .register(meterRegistry);
+
+        this.sagaSubscriber = new SagaSubscriber(natsConnectionUrl, jetStreamSupport, fetchBatch, fetchWait);
+        sagaSubscriber.subscribe(requestTopic, durable, this::handleMessage);
+
+        log.info("NATS Saga Event Listener started. Subscribed to: {}, transport: {}, lanes: {}, virtual threads: {}, batch size: {}",
+                requestTopic, jetStreamSupport.isEnabled() ? "jetstream" : "core", lanes, virtualThreads, batchSize);
     }
 
     /**
-     * Обработка входящего Saga события.
+     * Обработка входящего Saga события: передаём в полосу пользователя.
      */
     private void handleMessage(Message message) {
-        String messageData = new String(message.getData());
-        log.info("Received Saga event: {}", messageData);
-
-        try {
-            BalanceUpdateRequestedEvent event = objectMapper.readValue(messageData, BalanceUpdateRequestedEvent.class);
-            processBalanceUpdate(event);
+        Span span = sagaTracing.startReceiveSpan(message);
+        try (Tracer.SpanInScope ignored = sagaTracing.inScope(span)) {
+            BalanceUpdateRequestedEvent event = sagaEventCodec.decode(message, BalanceUpdateRequestedEvent.class);
+            log.info("Received Saga event: {}", event);
+            span.tag("saga.id", event.getSagaId());
+            laneExecutor.submit(event.getLogin(), new InboundRequest(event, message, span));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing Saga event from {}", message.getSubject());
+            span.end();
         } catch (Exception e) {
             log.error("Failed to process Saga event: {}", e.getMessage(), e);
+            // Нечитаемое сообщение не станет читаемым при повторной доставке
+            if (message.isJetStream()) {
+                message.term();
+            }
+            span.error(e).end();
         }
     }
 
     /**
-     * Обработка запроса на обновление баланса.
-     * Логика выполняется в транзакции вместе с сохранением ответа в Outbox.
+     * Обработать пачку одной транзакцией; при ошибке - каждый запрос в своей транзакции,
+     * чтобы один сбойный запрос не откатывал остальные.
      */
-    @Transactional
-    public void processBalanceUpdate(BalanceUpdateRequestedEvent event) {
-        log.info("Processing balance update: sagaId={}, login={}, amount={}",
-                event.getSagaId(), event.getLogin(), event.getAmount());
-
+    private void processBatch(List<InboundRequest> requests) {
+        batchSizeSummary.record(requests.size());
+        Timer.Sample sample = Timer.start();
         try {
-            // Выполняем обновление баланса
-            BigDecimal newBalance = accountService.updateBalanceAndReturn(
-                    event.getLogin(),
-                    event.getCurrency(),
-                    event.getAmount()
-            );
-
-            // Успех - сохраняем событие успеха в Outbox
-            BalanceUpdatedEvent successEvent = BalanceUpdatedEvent.builder()
-                    .sagaId(event.getSagaId())
-                    .operationId(event.getOperationId())
-                    .login(event.getLogin())
-                    .currency(event.getCurrency())
-                    .newBalance(newBalance)
-                    .build();
-
-            saveEventToOutbox(SagaEventType.SAGA_BALANCE_UPDATED, successEvent);
-            log.info("Balance updated successfully: sagaId={}, newBalance={}", event.getSagaId(), newBalance);
-
+            Map<BalanceUpdateRequestedEvent, Span> spans = new IdentityHashMap<>();
+            requests.forEach(request -> spans.put(request.getEvent(), request.getSpan()));
+            sagaBalanceUpdateHandler.processBatch(requests.stream().map(InboundRequest::getEvent).toList(), spans::get);
+            requests.forEach(InboundRequest::ack);
+            sample.stop(batchTimer);
+            return;
         } catch (Exception e) {
-            // Ошибка - сохраняем событие ошибки в Outbox
-            log.error("Balance update failed: sagaId={}, error={}", event.getSagaId(), e.getMessage());
-
-            BalanceUpdateFailedEvent failedEvent = BalanceUpdateFailedEvent.builder()
-                    .sagaId(event.getSagaId())
-                    .operationId(event.getOperationId())
-                    .login(event.getLogin())
-                    .errorMessage(e.getMessage())
-                    .errorCode(getErrorType(e))
-                    .build();
-
-            saveEventToOutbox(SagaEventType.SAGA_BALANCE_UPDATE_FAILED, failedEvent);
+            log.error("Saga batch of {} events failed, retrying one by one: {}", requests.size(), e.getMessage());
         }
-    }
-
-    /**
-     * Сохранить Saga событие в Outbox для последующей отправки в NATS.
-     */
-    private void saveEventToOutbox(SagaEventType eventType, Object eventPayload) {
-        try {
-            String payloadJson = objectMapper.writeValueAsString(eventPayload);
 
-            OutboxEvent outboxEvent = OutboxEvent.builder()
-                    .eventType(eventType.name())
-                    .payload(payloadJson)
-                    .build();
-
-            outboxEventRepository.save(outboxEvent);
-            log.debug("Saga event saved to Outbox: type={}", eventType);
+        individualTimer.record(() -> processIndividually(requests));
+    }
 
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize Saga event: {}", e.getMessage());
-            throw new RuntimeException("Failed to save Saga event to Outbox", e);
+    private void processIndividually(List<InboundRequest> requests) {
+        for (InboundRequest request : requests) {
+            BalanceUpdateRequestedEvent event = request.getEvent();
+            try (Tracer.SpanInScope ignored = sagaTracing.inScope(request.getSpan())) {
+                try {
+                    sagaBalanceUpdateHandler.process(event);
+                    request.ack();
+                } catch (Exception e) {
+                    request.getSpan().error(e);
+                    try {
+                        sagaBalanceUpdateHandler.processFailure(event, e);
+                        request.ack();
+                    } catch (Exception reportError) {
+                        log.error("Failed to process Saga event: sagaId={}", event.getSagaId(), reportError);
+                        request.nak();
+                    }
+                }
+            }
         }
     }
 
-    /**
-     * Определить тип ошибки по типу исключения (type-safe).
-     */
-    private String getErrorType(Exception e) {
-        if (e instanceof InsufficientFundsException) {
-            return "INSUFFICIENT_FUNDS";
-        } else if (e instanceof AccountNotFoundException) {
-            return "ACCOUNT_NOT_FOUND";
-        } else if (e instanceof UserNotFoundException) {
-            return "USER_NOT_FOUND";
-        }
-        return "UNKNOWN_ERROR";
+    private static Timer processingTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("saga.listener.processing")
+                .description("Time to process a batch of Saga requests")
+                .tag("listener", LISTENER_NAME)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @PreDestroy
     public void destroy() throws InterruptedException {
-        natsConnection.close();
+        // Сначала прекращаем приём, затем дообрабатываем очереди.
+        // Соединение закрываем последним - в режиме JetStream нужно подтвердить обработанное.
+        sagaSubscriber.stopReceiving();
+        laneExecutor.shutdown(Duration.ofSeconds(10));
+        sagaSubscriber.close();
     }
-}
 
+    /**
+     * Запрос в полосе вместе с исходным сообщением (для подтверждения JetStream)
+     * и span его получения.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class InboundRequest {
+        private final BalanceUpdateRequestedEvent event;
+        private final Message message;
+        private final Span span;
+
+        void ack() {
+            if (message.isJetStream()) {
+                message.ack();
+            }
+            span.end();
+        }
 
+        void nak() {
+            if (message.isJetStream()) {
+                message.nak();
+            }
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bankapp.accounts.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат атомарного обновления баланса.
+ * Бизнес-ошибки возвращаются как статус, а не исключение, - вызывающий код
+ * (Saga) сохраняет ответ в той же транзакции.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BalanceUpdateResult {
+
+    public enum Status {
+        UPDATED,
+        INSUFFICIENT_FUNDS,
+        ACCOUNT_NOT_FOUND,
+        USER_NOT_FOUND
+    }
+
+    private final Status status;
+    private final BigDecimal newBalance;
+    private final String errorMessage;
+
+    public static BalanceUpdateResult updated(BigDecimal newBalance) {
+        return new BalanceUpdateResult(Status.UPDATED, newBalance, null);
+    }
+
+    public static BalanceUpdateResult failed(Status status, String errorMessage) {
+        return new BalanceUpdateResult(status, null, errorMessage);
+    }
+
+    public boolean isUpdated() {
+        return status == Status.UPDATED;
+    }
+}
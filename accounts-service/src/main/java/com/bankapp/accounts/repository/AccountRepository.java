@@ -3,8 +3,11 @@ package com.bankapp.accounts.repository;
 import com.bankapp.accounts.entity.Account;
 import com.bankapp.accounts.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,5 +20,26 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     
     boolean existsByUserAndCurrency(User user, String currency);
 
-}
+    /**
+     * Атомарно изменить баланс одним запросом, если он не станет отрицательным.
+     * Строка блокируется самим UPDATE, поэтому параллельные изменения не теряются.
+     * Пустой результат - счёта нет или недостаточно средств.
+     */
+    @Query(value = """
+            UPDATE accounts.accounts a
+            SET balance = a.balance + :amount, updated_at = NOW()
+            FROM accounts.users u
+            WHERE a.user_id = u.id
+              AND u.login = :login
+              AND a.currency = :currency
+              AND a.balance + :amount >= 0
+            RETURNING a.balance
+            """, nativeQuery = true)
+    Optional<BigDecimal> addToBalance(@Param("login") String login,
+                                      @Param("currency") String currency,
+                                      @Param("amount") BigDecimal amount);
+
+    @Query("SELECT a.balance FROM Account a WHERE a.user.login = :login AND a.currency = :currency")
+    Optional<BigDecimal> findBalance(@Param("login") String login, @Param("currency") String currency);
 
+}
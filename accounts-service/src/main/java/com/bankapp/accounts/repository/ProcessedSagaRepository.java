@@ -0,0 +1,30 @@
+package com.bankapp.accounts.repository;
+
+import com.bankapp.accounts.entity.ProcessedSaga;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ProcessedSagaRepository extends JpaRepository<ProcessedSaga, String> {
+
+    /**
+     * Удалить пачку записей журнала старше cutoff.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM accounts.processed_sagas
+            WHERE saga_id IN (
+                SELECT saga_id FROM accounts.processed_sagas
+                WHERE processed_at < :cutoff
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
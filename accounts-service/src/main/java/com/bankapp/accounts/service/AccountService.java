@@ -4,9 +4,11 @@ import com.bankapp.accounts.dto.AccountDto;
 import com.bankapp.accounts.entity.Account;
 import com.bankapp.accounts.entity.User;
 import com.bankapp.accounts.exception.AccountNotFoundException;
-import com.bankapp.accounts.exception.InsufficientFundsException;
+import com.bankapp.accounts.exception.UserNotFoundException;
+import com.bankapp.accounts.model.BalanceUpdateResult;
 import com.bankapp.accounts.model.Currency;
 import com.bankapp.accounts.repository.AccountRepository;
+import com.bankapp.accounts.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -24,6 +26,7 @@ public class AccountService {
 
     private final AccountRepository accountRepository;
     private final UserService userService;
+    private final UserRepository userRepository;
 
     @Transactional(readOnly = true)
     public List<AccountDto> getUserAccounts(String login) {
@@ -82,46 +85,42 @@ public class AccountService {
 
     @Transactional
     public void updateBalance(String login, Currency currency, BigDecimal amount) {
-        log.info("Updating balance for user: {}, currency: {}, amount: {}", login, currency, amount);
+        BalanceUpdateResult result = tryUpdateBalance(login, currency.name(), amount);
 
-        User user = userService.findUserByLogin(login);
-        String currencyCode = currency.name();
-        Account account = accountRepository.findByUserAndCurrency(user, currencyCode)
-                .orElseThrow(() -> new IllegalArgumentException("Account not found"));
-
-        BigDecimal newBalance = account.getBalance().add(amount);
-        
-        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("Insufficient funds");
+        switch (result.getStatus()) {
+            case UPDATED -> { }
+            case USER_NOT_FOUND -> throw new UserNotFoundException(result.getErrorMessage());
+            default -> throw new IllegalArgumentException(result.getErrorMessage());
         }
-
-        account.setBalance(newBalance);
-        accountRepository.save(account);
-        log.info("Balance updated successfully. New balance: {}", newBalance);
     }
 
     /**
-     * Обновить баланс и вернуть новое значение (для Saga).
+     * Изменить баланс одним условным UPDATE и вернуть результат (для Saga).
+     * Бизнес-ошибки возвращаются статусом: транзакция не помечается к откату,
+     * и ответ об ошибке сохраняется в Outbox в той же транзакции.
+     * Дополнительный запрос выполняется только при отказе - чтобы определить причину.
      */
     @Transactional
-    public BigDecimal updateBalanceAndReturn(String login, String currencyCode, BigDecimal amount) {
+    public BalanceUpdateResult tryUpdateBalance(String login, String currencyCode, BigDecimal amount) {
         log.info("Updating balance for user: {}, currency: {}, amount: {}", login, currencyCode, amount);
 
-        User user = userService.findUserByLogin(login);
-        Account account = accountRepository.findByUserAndCurrency(user, currencyCode)
-                .orElseThrow(() -> new AccountNotFoundException("Account not found for currency: " + currencyCode));
-
-        BigDecimal newBalance = account.getBalance().add(amount);
-        
-        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-            throw new InsufficientFundsException("Insufficient funds. Required: " + amount.abs() + ", available: " + account.getBalance());
+        Optional<BigDecimal> newBalance = accountRepository.addToBalance(login, currencyCode, amount);
+        if (newBalance.isPresent()) {
+            log.info("Balance updated successfully. New balance: {}", newBalance.get());
+            return BalanceUpdateResult.updated(newBalance.get());
         }
 
-        account.setBalance(newBalance);
-        accountRepository.save(account);
-        log.info("Balance updated successfully. New balance: {}", newBalance);
-        
-        return newBalance;
+        Optional<BigDecimal> currentBalance = accountRepository.findBalance(login, currencyCode);
+        if (currentBalance.isPresent()) {
+            return BalanceUpdateResult.failed(BalanceUpdateResult.Status.INSUFFICIENT_FUNDS,
+                    "Insufficient funds. Required: " + amount.abs() + ", available: " + currentBalance.get());
+        }
+        if (!userRepository.existsByLogin(login)) {
+            return BalanceUpdateResult.failed(BalanceUpdateResult.Status.USER_NOT_FOUND,
+                    "User not found: " + login);
+        }
+        return BalanceUpdateResult.failed(BalanceUpdateResult.Status.ACCOUNT_NOT_FOUND,
+                "Account not found for currency: " + currencyCode);
     }
 
     /**
@@ -0,0 +1,221 @@
+package com.bankapp.accounts.service;
+
+import com.bankapp.accounts.entity.ProcessedSaga;
+import com.bankapp.accounts.exception.AccountNotFoundException;
+import com.bankapp.accounts.exception.InsufficientFundsException;
+import com.bankapp.accounts.exception.UserNotFoundException;
+import com.bankapp.accounts.model.BalanceUpdateResult;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateFailedEvent;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.bankapp.saga.event.SagaEventType;
+import com.bankapp.saga.outbox.OutboxEvent;
+import com.bankapp.saga.outbox.OutboxEventRepository;
+import com.bankapp.saga.tracing.SagaTracing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Обработка запросов Saga на обновление баланса.
+ *
+ * Отдельный bean, чтобы вызовы из SagaEventListener шли через транзакционный прокси:
+ * обновление баланса и ответ в Outbox коммитятся атомарно, одной транзакцией на пачку.
+ *
+ * Запросы идемпотентны по sagaId: ответ записывается в {@link SagaIdempotencyLedger}
+ * в той же транзакции, повторно доставленный запрос баланс не меняет, а получает
+ * тот же ответ ещё раз.
+ *
+ * Отказы считаются метрикой saga.balance.update.failures с тегом code
+ * (INSUFFICIENT_FUNDS, ACCOUNT_NOT_FOUND, ...) - после коммита, чтобы откат пачки
+ * и повтор по одному не учитывали отказ дважды.
+ *
+ * Ответ в Outbox сохраняет traceparent span запроса: cash-service продолжит ту же трассу.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SagaBalanceUpdateHandler {
+
+    private final AccountService accountService;
+    private final OutboxEventRepository outboxEventRepository;
+    private final SagaIdempotencyLedger idempotencyLedger;
+    private final SagaEventCodec sagaEventCodec;
+    private final MeterRegistry meterRegistry;
+    private final SagaTracing sagaTracing;
+
+    /**
+     * Обработать пачку запросов в одной транзакции (один коммит на пачку).
+     * Каждый запрос обрабатывается в своём span (spans), чтобы ответ в Outbox
+     * продолжал трассу своего запроса, а не первого в пачке.
+     */
+    @Transactional
+    public void processBatch(List<BalanceUpdateRequestedEvent> events, Function<BalanceUpdateRequestedEvent, Span> spans) {
+        log.debug("Processing batch of {} balance updates", events.size());
+        Map<String, ProcessedSaga> processed = new HashMap<>(idempotencyLedger.findProcessed(
+                events.stream().map(BalanceUpdateRequestedEvent::getSagaId).toList()));
+
+        for (BalanceUpdateRequestedEvent event : events) {
+            try (Tracer.SpanInScope ignored = sagaTracing.inScope(spans.apply(event))) {
+                ProcessedSaga previous = processed.get(event.getSagaId());
+                if (previous != null) {
+                    replayResponse(event, previous);
+                } else {
+                    processed.put(event.getSagaId(), processBalanceUpdate(event));
+                }
+            }
+        }
+    }
+
+    /**
+     * Обработать один запрос в отдельной транзакции (повтор после ошибки пачки).
+     */
+    @Transactional
+    public void process(BalanceUpdateRequestedEvent event) {
+        idempotencyLedger.findProcessed(event.getSagaId()).ifPresentOrElse(
+                previous -> replayResponse(event, previous),
+                () -> processBalanceUpdate(event));
+    }
+
+    /**
+     * Сообщить cash-service об ошибке, из-за которой транзакция запроса откатилась.
+     */
+    @Transactional
+    public void processFailure(BalanceUpdateRequestedEvent event, Exception error) {
+        log.error("Balance update failed: sagaId={}, error={}", event.getSagaId(), error.getMessage());
+        if (idempotencyLedger.findProcessed(event.getSagaId()).isPresent()) {
+            // Ответ уже был отправлен в одной из прошлых доставок
+            return;
+        }
+        saveFailedEvent(event, getErrorType(error), error.getMessage());
+    }
+
+    /**
+     * Обработка запроса на обновление баланса.
+     * Логика выполняется в транзакции вместе с сохранением ответа в Outbox.
+     */
+    private ProcessedSaga processBalanceUpdate(BalanceUpdateRequestedEvent event) {
+        log.info("Processing balance update: sagaId={}, login={}, amount={}",
+                event.getSagaId(), event.getLogin(), event.getAmount());
+
+        BalanceUpdateResult result = accountService.tryUpdateBalance(
+                event.getLogin(),
+                event.getCurrency(),
+                event.getAmount()
+        );
+
+        if (result.isUpdated()) {
+            // Успех - сохраняем событие успеха в Outbox
+            BalanceUpdatedEvent successEvent = BalanceUpdatedEvent.builder()
+                    .sagaId(event.getSagaId())
+                    .operationId(event.getOperationId())
+                    .login(event.getLogin())
+                    .currency(event.getCurrency())
+                    .newBalance(result.getNewBalance())
+                    .build();
+
+            log.info("Balance updated successfully: sagaId={}, newBalance={}", event.getSagaId(), result.getNewBalance());
+            return respond(event, SagaEventType.SAGA_BALANCE_UPDATED, successEvent);
+        }
+
+        // Бизнес-ошибка - сохраняем событие ошибки в Outbox
+        log.error("Balance update failed: sagaId={}, error={}", event.getSagaId(), result.getErrorMessage());
+        return saveFailedEvent(event, result.getStatus().name(), result.getErrorMessage());
+    }
+
+    /**
+     * Повторная доставка уже обработанного запроса: баланс не меняем, повторяем ответ.
+     */
+    private void replayResponse(BalanceUpdateRequestedEvent event, ProcessedSaga previous) {
+        log.info("Duplicate Saga request, replaying response: sagaId={}, type={}",
+                event.getSagaId(), previous.getResponseEventType());
+        saveEventToOutbox(previous.getResponseEventType(), event.getLogin(),
+                previous.getResponsePayload(), previous.getResponseContentType());
+    }
+
+    private ProcessedSaga saveFailedEvent(BalanceUpdateRequestedEvent event, String errorCode, String errorMessage) {
+        countFailureAfterCommit(errorCode);
+
+        BalanceUpdateFailedEvent failedEvent = BalanceUpdateFailedEvent.builder()
+                .sagaId(event.getSagaId())
+                .operationId(event.getOperationId())
+                .login(event.getLogin())
+                .errorMessage(errorMessage)
+                .errorCode(errorCode)
+                .build();
+
+        return respond(event, SagaEventType.SAGA_BALANCE_UPDATE_FAILED, failedEvent);
+    }
+
+    /**
+     * Сохранить ответ в Outbox и в журнал обработанных запросов.
+     */
+    private ProcessedSaga respond(BalanceUpdateRequestedEvent event, SagaEventType eventType, Object eventPayload) {
+        byte[] payload = sagaEventCodec.encode(eventPayload);
+        String contentType = sagaEventCodec.contentType();
+        saveEventToOutbox(eventType.name(), event.getLogin(), payload, contentType);
+        return idempotencyLedger.record(event.getSagaId(), eventType.name(), payload, contentType);
+    }
+
+    /**
+     * Сохранить Saga событие в Outbox для последующей отправки в NATS.
+     * События одного пользователя (login) отправляются в порядке сохранения.
+     */
+    private void saveEventToOutbox(String eventType, String login, byte[] payload, String contentType) {
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .aggregateType(OutboxEvent.AGGREGATE_TYPE_USER)
+                .aggregateId(login)
+                .eventType(eventType)
+                .payloadBytes(payload)
+                .contentType(contentType)
+                .traceContext(sagaTracing.currentTraceContext())
+                .build();
+
+        outboxEventRepository.save(outboxEvent);
+        log.debug("Saga event saved to Outbox: type={}", eventType);
+    }
+
+    private void countFailureAfterCommit(String errorCode) {
+        Counter counter = Counter.builder("saga.balance.update.failures")
+                .description("Rejected Saga balance updates by error code")
+                .tag("code", errorCode)
+                .register(meterRegistry);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment();
+            }
+        });
+    }
+
+    /**
+     * Определить тип ошибки по типу исключения (type-safe).
+     */
+    private String getErrorType(Exception e) {
+        if (e instanceof InsufficientFundsException) {
+            return "INSUFFICIENT_FUNDS";
+        } else if (e instanceof AccountNotFoundException) {
+            return "ACCOUNT_NOT_FOUND";
+        } else if (e instanceof UserNotFoundException) {
+            return "USER_NOT_FOUND";
+        }
+        return "UNKNOWN_ERROR";
+    }
+}
@@ -0,0 +1,120 @@
+package com.bankapp.accounts.service;
+
+import com.bankapp.accounts.entity.ProcessedSaga;
+import com.bankapp.accounts.repository.ProcessedSagaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Журнал обработанных Saga запросов: таблица processed_sagas и ограниченный
+ * LRU-кэш последних sagaId перед ней.
+ *
+ * Запись добавляется в той же транзакции, что и изменение баланса, а в кэш
+ * попадает только после коммита - откаченная обработка не считается выполненной.
+ */
+@Component
+@Slf4j
+public class SagaIdempotencyLedger {
+
+    private final ProcessedSagaRepository processedSagaRepository;
+    private final Duration retention;
+    private final int cleanupBatchSize;
+    private final Map<String, ProcessedSaga> recent;
+
+    public SagaIdempotencyLedger(ProcessedSagaRepository processedSagaRepository,
+                                 @Value("${application.saga.idempotency.cache-size:10000}") int cacheSize,
+                                 @Value("${application.saga.idempotency.retention:P7D}") Duration retention,
+                                 @Value("${application.saga.idempotency.cleanup-batch-size:1000}") int cleanupBatchSize) {
+        this.processedSagaRepository = processedSagaRepository;
+        this.retention = retention;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProcessedSaga> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Найти уже обработанные запросы среди sagaIds: сначала в кэше,
+     * остальные - одним запросом к таблице.
+     */
+    public Map<String, ProcessedSaga> findProcessed(Collection<String> sagaIds) {
+        Map<String, ProcessedSaga> processed = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String sagaId : sagaIds) {
+            ProcessedSaga cached = recent.get(sagaId);
+            if (cached != null) {
+                processed.put(sagaId, cached);
+            } else {
+                misses.add(sagaId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            for (ProcessedSaga saga : processedSagaRepository.findAllById(misses)) {
+                processed.put(saga.getSagaId(), saga);
+                recent.put(saga.getSagaId(), saga);
+            }
+        }
+        return processed;
+    }
+
+    public Optional<ProcessedSaga> findProcessed(String sagaId) {
+        return Optional.ofNullable(findProcessed(List.of(sagaId)).get(sagaId));
+    }
+
+    /**
+     * Записать ответ на запрос. Вызывается внутри транзакции обработки.
+     */
+    public ProcessedSaga record(String sagaId, String responseEventType,
+                                byte[] responsePayload, String responseContentType) {
+        ProcessedSaga saga = processedSagaRepository.save(ProcessedSaga.builder()
+                .sagaId(sagaId)
+                .responseEventType(responseEventType)
+                .responsePayload(responsePayload)
+                .responseContentType(responseContentType)
+                .build());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(sagaId, saga);
+                }
+            });
+        }
+        return saga;
+    }
+
+    @Scheduled(fixedDelayString = "${application.saga.idempotency.cleanup-interval:PT10m}")
+    public void cleanup() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = processedSagaRepository.deleteProcessedBefore(cutoff, cleanupBatchSize);
+            total += deleted;
+        } while (deleted >= cleanupBatchSize);
+
+        if (total > 0) {
+            log.info("Removed {} processed saga records older than {}", total, cutoff);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.bankapp.accounts.service;
+
+import com.bankapp.accounts.entity.ProcessedSaga;
+import com.bankapp.accounts.model.BalanceUpdateResult;
+import com.bankapp.accounts.repository.ProcessedSagaRepository;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.bankapp.saga.event.SagaEventType;
+import com.bankapp.saga.outbox.OutboxEvent;
+import com.bankapp.saga.outbox.OutboxEventRepository;
+import com.bankapp.saga.tracing.SagaTracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link SagaBalanceUpdateHandler}: повторно доставленный запрос не меняет баланс,
+ * а получает записанный ранее ответ.
+ */
+class SagaBalanceUpdateHandlerTest {
+
+    private final SagaEventCodec codec = new SagaEventCodec(new ObjectMapper(), "binary");
+    private AccountService accountService;
+    private OutboxEventRepository outboxEventRepository;
+    private ProcessedSagaRepository processedSagaRepository;
+    private SagaBalanceUpdateHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        accountService = mock(AccountService.class);
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        processedSagaRepository = mock(ProcessedSagaRepository.class);
+        when(processedSagaRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(processedSagaRepository.findAllById(anyCollection())).thenReturn(List.of());
+        SagaIdempotencyLedger ledger = new SagaIdempotencyLedger(processedSagaRepository, 100, Duration.ofDays(7), 1000);
+        handler = new SagaBalanceUpdateHandler(accountService, outboxEventRepository, ledger, codec,
+                new SimpleMeterRegistry(), mock(SagaTracing.class));
+    }
+
+    @Test
+    void replayedSagaIdReturnsRecordedResponseWithoutSecondUpdate() throws IOException {
+        byte[] recorded = codec.encode(BalanceUpdatedEvent.builder()
+                .sagaId("saga-1")
+                .newBalance(new BigDecimal("150.00"))
+                .build());
+        when(processedSagaRepository.findAllById(anyCollection())).thenReturn(List.of(ProcessedSaga.builder()
+                .sagaId("saga-1")
+                .responseEventType(SagaEventType.SAGA_BALANCE_UPDATED.name())
+                .responsePayload(recorded)
+                .responseContentType(codec.contentType())
+                .build()));
+
+        handler.process(request("saga-1"));
+
+        verify(accountService, never()).tryUpdateBalance(anyString(), anyString(), any());
+        verify(processedSagaRepository, never()).save(any());
+        OutboxEvent replayed = savedOutboxEvents(1).get(0);
+        assertThat(replayed.getEventType()).isEqualTo(SagaEventType.SAGA_BALANCE_UPDATED.name());
+        assertThat(replayed.getPayloadBytes()).isEqualTo(recorded);
+        assertThat(codec.decode(replayed.getPayloadBytes(), replayed.getContentType(), BalanceUpdatedEvent.class)
+                .getNewBalance()).isEqualByComparingTo("150.00");
+    }
+
+    @Test
+    void duplicateInBatchUpdatesBalanceOnce() {
+        when(accountService.tryUpdateBalance("user", "RUB", new BigDecimal("50.00")))
+                .thenReturn(BalanceUpdateResult.updated(new BigDecimal("150.00")));
+        Span span = mock(Span.class);
+
+        handler.processBatch(List.of(request("saga-1"), request("saga-1")), event -> span);
+
+        verify(accountService, times(1)).tryUpdateBalance("user", "RUB", new BigDecimal("50.00"));
+        verify(processedSagaRepository, times(1)).save(any());
+        List<OutboxEvent> responses = savedOutboxEvents(2);
+        assertThat(responses.get(1).getPayloadBytes()).isEqualTo(responses.get(0).getPayloadBytes());
+    }
+
+    private List<OutboxEvent> savedOutboxEvents(int count) {
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(count)).save(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static BalanceUpdateRequestedEvent request(String sagaId) {
+        return BalanceUpdateRequestedEvent.builder()
+                .sagaId(sagaId)
+                .operationId(1L)
+                .login("user")
+                .currency("RUB")
+                .amount(new BigDecimal("50.00"))
+                .operationType("DEPOSIT")
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.bankapp.accounts.service;
+
+import com.bankapp.accounts.entity.ProcessedSaga;
+import com.bankapp.accounts.repository.ProcessedSagaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link SagaIdempotencyLedger}: запись попадает в LRU-кэш только после коммита.
+ */
+class SagaIdempotencyLedgerTest {
+
+    private ProcessedSagaRepository repository;
+    private SagaIdempotencyLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProcessedSagaRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.findAllById(anyCollection())).thenReturn(List.of());
+        ledger = new SagaIdempotencyLedger(repository, 2, Duration.ofDays(7), 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cachesRecordAfterCommit() {
+        ProcessedSaga recorded = inTransaction(TransactionSynchronization.STATUS_COMMITTED,
+                () -> ledger.record("saga-1", "SAGA_BALANCE_UPDATED", new byte[]{1}, "application/json"));
+
+        assertThat(ledger.findProcessed("saga-1")).containsSame(recorded);
+        verify(repository, never()).findAllById(anyCollection());
+    }
+
+    @Test
+    void rolledBackRecordIsNotCached() {
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK,
+                () -> ledger.record("saga-1", "SAGA_BALANCE_UPDATED", new byte[]{1}, "application/json"));
+
+        assertThat(ledger.findProcessed("saga-1")).isEmpty();
+        verify(repository).findAllById(List.of("saga-1"));
+    }
+
+    @Test
+    void recordIsNotCachedBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.record("saga-1", "SAGA_BALANCE_UPDATED", new byte[]{1}, "application/json");
+
+        assertThat(ledger.findProcessed("saga-1")).isEmpty();
+        verify(repository).findAllById(List.of("saga-1"));
+    }
+
+    @Test
+    void cachesRowsLoadedFromTable() {
+        ProcessedSaga stored = ProcessedSaga.builder().sagaId("saga-1").responseEventType("SAGA_BALANCE_UPDATED").build();
+        when(repository.findAllById(anyCollection())).thenReturn(List.of(stored));
+
+        assertThat(ledger.findProcessed("saga-1")).containsSame(stored);
+        assertThat(ledger.findProcessed("saga-1")).containsSame(stored);
+        verify(repository, times(1)).findAllById(anyCollection());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        for (String sagaId : List.of("saga-1", "saga-2", "saga-3")) {
+            inTransaction(TransactionSynchronization.STATUS_COMMITTED,
+                    () -> ledger.record(sagaId, "SAGA_BALANCE_UPDATED", new byte[]{1}, "application/json"));
+        }
+
+        ledger.findProcessed(List.of("saga-1", "saga-2", "saga-3"));
+
+        verify(repository).findAllById(List.of("saga-1"));
+    }
+
+    /**
+     * Выполнить действие как в транзакции и завершить её с указанным статусом.
+     */
+    private static <T> T inTransaction(int status, Supplier<T> action) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            T result = action.get();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
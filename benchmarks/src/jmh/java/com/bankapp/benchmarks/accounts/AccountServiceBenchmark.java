@@ -0,0 +1,165 @@
+package com.bankapp.benchmarks.accounts;
+
+import com.bankapp.accounts.model.BalanceUpdateResult;
+import com.bankapp.accounts.service.AccountService;
+import com.bankapp.accounts.service.UserService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Изменение баланса в Saga {@link AccountService#tryUpdateBalance} на встроенном PostgreSQL
+ * со схемой из init-db.sql.
+ *
+ * updateBalance - случайный пользователь из users (без конкуренции за строку),
+ * updateHotAccount - один пользователь (с -t N потоки ждут блокировку строки),
+ * rejectInsufficientFunds - отказ: условный UPDATE не меняет строку, причина
+ * определяется дополнительным запросом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountServiceBenchmark {
+
+    private static final String CURRENCY = "RUB";
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+    @Param({"1000"})
+    private int users;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            // init-db.sql выдаёт права роли приложения
+            statement.execute("CREATE ROLE bankapp");
+            statement.execute(loadSchema());
+        }
+        createUsers();
+
+        // Контекст без SpringApplication: в jmh jar файлы spring.factories модулей
+        // перекрывают друг друга, а автоконфигурация Spring Cloud здесь не нужна
+        AnnotationConfigApplicationContext persistenceContext = new AnnotationConfigApplicationContext();
+        persistenceContext.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username", "postgres",
+                "spring.jpa.hibernate.ddl-auto", "none")));
+        persistenceContext.register(AccountsPersistence.class);
+        persistenceContext.refresh();
+        context = persistenceContext;
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Benchmark
+    public BalanceUpdateResult updateBalance() {
+        String login = "user_" + ThreadLocalRandom.current().nextInt(users);
+        return accountService.tryUpdateBalance(login, CURRENCY, BigDecimal.TEN);
+    }
+
+    @Benchmark
+    public BalanceUpdateResult updateHotAccount() {
+        return accountService.tryUpdateBalance("user_0", CURRENCY, BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public BalanceUpdateResult rejectInsufficientFunds() {
+        String login = "user_" + ThreadLocalRandom.current().nextInt(users);
+        return accountService.tryUpdateBalance(login, CURRENCY, INITIAL_BALANCE.negate().multiply(BigDecimal.TEN));
+    }
+
+    private String loadSchema() throws IOException {
+        try (InputStream schema = getClass().getResourceAsStream("/init-db.sql")) {
+            if (schema == null) {
+                throw new IllegalStateException("init-db.sql is not on the benchmark classpath");
+            }
+            return new String(schema.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void createUsers() throws SQLException {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             PreparedStatement insertUser = connection.prepareStatement("""
+                     INSERT INTO accounts.users (login, password, first_name, last_name, email, birth_date)
+                     VALUES (?, 'benchmark', 'Bench', 'User', ?, DATE '1990-01-01')
+                     """)) {
+            for (int i = 0; i < users; i++) {
+                insertUser.setString(1, "user_" + i);
+                insertUser.setString(2, "user_" + i + "@bankapp.local");
+                insertUser.addBatch();
+            }
+            insertUser.executeBatch();
+        }
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             PreparedStatement insertAccounts = connection.prepareStatement("""
+                     INSERT INTO accounts.accounts (user_id, currency, balance)
+                     SELECT id, ?, ? FROM accounts.users
+                     """)) {
+            insertAccounts.setString(1, CURRENCY);
+            insertAccounts.setBigDecimal(2, INITIAL_BALANCE);
+            insertAccounts.executeUpdate();
+        }
+    }
+
+    /**
+     * Только слой данных accounts-service: без веб, Consul, NATS и Saga слушателей.
+     */
+    @Configuration
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            DataSourceTransactionManagerAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class
+    })
+    @EntityScan("com.bankapp.accounts.entity")
+    @EnableJpaRepositories("com.bankapp.accounts.repository")
+    @Import({AccountService.class, UserService.class})
+    static class AccountsPersistence {
+    }
+}
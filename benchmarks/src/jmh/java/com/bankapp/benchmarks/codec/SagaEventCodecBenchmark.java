@@ -0,0 +1,83 @@
+package com.bankapp.benchmarks.codec;
+
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и декодирование Saga событий ({@link SagaEventCodec}) в двух форматах:
+ * binary - компактный версионированный формат, json - прежний Jackson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SagaEventCodecBenchmark {
+
+    @Param({"binary", "json"})
+    private String codec;
+
+    private SagaEventCodec sagaEventCodec;
+    private BalanceUpdateRequestedEvent requestEvent;
+    private BalanceUpdatedEvent responseEvent;
+    private byte[] encodedRequest;
+    private byte[] encodedResponse;
+
+    @Setup
+    public void setUp() {
+        sagaEventCodec = new SagaEventCodec(new ObjectMapper().findAndRegisterModules(), codec);
+
+        String sagaId = UUID.randomUUID().toString();
+        requestEvent = BalanceUpdateRequestedEvent.builder()
+                .sagaId(sagaId)
+                .operationId(123456L)
+                .login("benchmark_user")
+                .currency("RUB")
+                .amount(new BigDecimal("-1500.50"))
+                .operationType("WITHDRAW")
+                .build();
+        responseEvent = BalanceUpdatedEvent.builder()
+                .sagaId(sagaId)
+                .operationId(123456L)
+                .login("benchmark_user")
+                .currency("RUB")
+                .newBalance(new BigDecimal("98499.50"))
+                .build();
+
+        encodedRequest = sagaEventCodec.encode(requestEvent);
+        encodedResponse = sagaEventCodec.encode(responseEvent);
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() {
+        return sagaEventCodec.encode(requestEvent);
+    }
+
+    @Benchmark
+    public BalanceUpdateRequestedEvent decodeRequest() throws IOException {
+        return sagaEventCodec.decode(encodedRequest, sagaEventCodec.contentType(), BalanceUpdateRequestedEvent.class);
+    }
+
+    @Benchmark
+    public byte[] encodeResponse() {
+        return sagaEventCodec.encode(responseEvent);
+    }
+
+    @Benchmark
+    public BalanceUpdatedEvent decodeResponse() throws IOException {
+        return sagaEventCodec.decode(encodedResponse, sagaEventCodec.contentType(), BalanceUpdatedEvent.class);
+    }
+}
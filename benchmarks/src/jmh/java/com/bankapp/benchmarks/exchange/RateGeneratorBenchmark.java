@@ -0,0 +1,41 @@
+package com.bankapp.benchmarks.exchange;
+
+import com.bankapp.exchangegenerator.dto.ExchangeRateDto;
+import com.bankapp.exchangegenerator.service.RateGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация очередного набора курсов {@link RateGeneratorService#generateRates()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateGeneratorBenchmark {
+
+    private RateGeneratorService rateGeneratorService;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        rateGeneratorService = new RateGeneratorService();
+
+        // Волатильность приходит из @Value - без контекста Spring задаём значение по умолчанию
+        Field volatility = RateGeneratorService.class.getDeclaredField("volatility");
+        volatility.setAccessible(true);
+        volatility.setDouble(rateGeneratorService, 0.02);
+    }
+
+    @Benchmark
+    public List<ExchangeRateDto> generateRates() {
+        return rateGeneratorService.generateRates();
+    }
+}
@@ -0,0 +1,144 @@
+package com.bankapp.benchmarks.outbox;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Минимальный сервер протокола NATS (core) для бенчмарков.
+ *
+ * Понимает то, что нужно издателю: CONNECT, PING/PONG, PUB и HPUB. Сообщения
+ * не маршрутизируются, а только считаются - замеряется сторона клиента
+ * (сборка сообщений, запись в сокет, flush), а не брокер.
+ */
+public class NatsStubServer implements AutoCloseable {
+
+    private static final byte[] PONG = "PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptThread;
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private volatile boolean closed;
+
+    public NatsStubServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.acceptThread = Thread.ofPlatform().name("nats-stub-accept").daemon(true).start(this::acceptLoop);
+    }
+
+    public String getUrl() {
+        return "nats://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket client = serverSocket.accept();
+                client.setTcpNoDelay(true);
+                clients.add(client);
+                Thread.ofPlatform().name("nats-stub-client").daemon(true).start(() -> serve(client));
+            } catch (IOException e) {
+                if (!closed) {
+                    throw new IllegalStateException("NATS stub accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            InputStream in = new BufferedInputStream(client.getInputStream(), 64 * 1024);
+            OutputStream out = client.getOutputStream();
+            out.write(infoLine().getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            String line;
+            while ((line = readLine(in)) != null) {
+                if (line.startsWith("PUB ")) {
+                    skipPayload(in, lastToken(line));
+                    receivedMessages.incrementAndGet();
+                } else if (line.startsWith("HPUB ")) {
+                    // HPUB <subject> [reply-to] <header bytes> <total bytes>
+                    skipPayload(in, lastToken(line));
+                    receivedMessages.incrementAndGet();
+                } else if (line.equals("PING")) {
+                    out.write(PONG);
+                    out.flush();
+                }
+                // CONNECT, PONG, SUB, UNSUB - ответ не нужен
+            }
+        } catch (SocketException e) {
+            // Клиент закрыл соединение
+        } catch (IOException e) {
+            if (!closed) {
+                throw new IllegalStateException("NATS stub connection failed", e);
+            }
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private String infoLine() {
+        return "INFO {\"server_id\":\"bench-stub\",\"server_name\":\"bench-stub\",\"version\":\"2.10.0\","
+                + "\"proto\":1,\"host\":\"127.0.0.1\",\"port\":" + serverSocket.getLocalPort()
+                + ",\"headers\":true,\"max_payload\":1048576}\r\n";
+    }
+
+    private static int lastToken(String line) {
+        return Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1).trim());
+    }
+
+    private static void skipPayload(InputStream in, int size) throws IOException {
+        // Тело сообщения и завершающий CRLF
+        long remaining = size + 2L;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new SocketException("Connection closed inside message body");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                int length = line.size();
+                byte[] bytes = line.toByteArray();
+                return new String(bytes, 0, length > 0 && bytes[length - 1] == '\r' ? length - 1 : length,
+                        StandardCharsets.US_ASCII);
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+        acceptThread.interrupt();
+    }
+}
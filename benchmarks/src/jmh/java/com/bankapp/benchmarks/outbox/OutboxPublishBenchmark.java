@@ -0,0 +1,110 @@
+package com.bankapp.benchmarks.outbox;
+
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.messaging.JetStreamSupport;
+import com.bankapp.saga.messaging.NatsEventPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Отправка пачки Outbox событий через {@link NatsEventPublisher} на встроенный
+ * {@link NatsStubServer}: сообщения собираются так же, как в OutboxProcessor
+ * (Nats-Msg-Id, Content-Type, закодированное событие), пачка завершается одним flush.
+ *
+ * Замер - на пачку; время на одно событие - score / batchSize: видно, как размер
+ * пачки амортизирует round trip flush.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OutboxPublishBenchmark {
+
+    private static final int MAX_BATCH_SIZE = 500;
+
+    @Param({"1", "10", "100", "500"})
+    private int batchSize;
+
+    @Param({"binary", "json"})
+    private String codec;
+
+    private NatsStubServer natsServer;
+    private NatsEventPublisher publisher;
+    private SagaEventCodec sagaEventCodec;
+    private List<byte[]> payloads;
+    private long nextId;
+
+    @Setup
+    public void setUp() throws Exception {
+        natsServer = new NatsStubServer();
+        JetStreamSupport coreTransport = new JetStreamSupport("core", "SAGA", List.of("saga.>"), "file",
+                Duration.ofDays(7), Duration.ofSeconds(30), 10, 1000);
+        publisher = new NatsEventPublisher(natsServer.getUrl(), "benchmarks", Duration.ofSeconds(5),
+                Duration.ofSeconds(1), Duration.ofSeconds(30), coreTransport);
+        sagaEventCodec = new SagaEventCodec(new ObjectMapper().findAndRegisterModules(), codec);
+
+        payloads = new ArrayList<>(MAX_BATCH_SIZE);
+        for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+            payloads.add(sagaEventCodec.encode(BalanceUpdateRequestedEvent.builder()
+                    .sagaId(UUID.randomUUID().toString())
+                    .operationId((long) i)
+                    .login("user_" + (i % 50))
+                    .currency("RUB")
+                    .amount(BigDecimal.valueOf(100 + i))
+                    .operationType("DEPOSIT")
+                    .build()));
+        }
+
+        // Соединение устанавливается при первой отправке - не в замере
+        publisher.publishBatch(buildBatch());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        publisher.destroy();
+        natsServer.close();
+    }
+
+    @Benchmark
+    public void publishBatch() throws IOException, TimeoutException, InterruptedException {
+        publisher.publishBatch(buildBatch());
+    }
+
+    /**
+     * Повторяет сборку сообщений OutboxProcessor для пачки событий из таблицы.
+     */
+    private List<Message> buildBatch() {
+        List<Message> messages = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Headers headers = new Headers()
+                    .put("Nats-Msg-Id", "outbox-benchmarks-" + nextId++)
+                    .put(SagaEventCodec.CONTENT_TYPE_HEADER, sagaEventCodec.contentType());
+            messages.add(NatsMessage.builder()
+                    .subject("saga.balance.update.requested")
+                    .headers(headers)
+                    .data(payloads.get(i))
+                    .build());
+        }
+        return messages;
+    }
+}
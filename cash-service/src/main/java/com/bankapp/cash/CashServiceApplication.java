@@ -2,11 +2,15 @@ package com.bankapp.cash;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+@SpringBootApplication(scanBasePackages = {"com.bankapp.cash", "com.bankapp.saga"})
+@EntityScan({"com.bankapp.cash.entity", "com.bankapp.saga.outbox"})
+@EnableJpaRepositories({"com.bankapp.cash.repository", "com.bankapp.saga.outbox"})
 @EnableDiscoveryClient
 @EnableFeignClients
 @EnableScheduling
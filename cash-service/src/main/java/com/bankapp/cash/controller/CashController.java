@@ -3,11 +3,18 @@ package com.bankapp.cash.controller;
 import com.bankapp.cash.dto.CashOperationRequest;
 import com.bankapp.cash.entity.CashOperation;
 import com.bankapp.cash.service.CashService;
+import com.bankapp.cash.service.SagaCompletionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/cash")
@@ -16,36 +23,109 @@ import org.springframework.web.bind.annotation.*;
 public class CashController {
 
     private final CashService cashService;
+    private final SagaCompletionService sagaCompletionService;
 
     /**
      * Пополнение счёта (асинхронно через Saga).
+     * С параметром wait (например, PT5S) ответ возвращается после завершения Saga
+     * или по истечении wait - тогда со статусом PENDING.
      */
     @PostMapping("/deposit")
-    public ResponseEntity<CashOperation> deposit(@Valid @RequestBody CashOperationRequest request) {
+    public CompletableFuture<ResponseEntity<CashOperation>> deposit(
+            @Valid @RequestBody CashOperationRequest request,
+            @RequestParam(required = false) Duration wait) {
         try {
             CashOperation operation = cashService.deposit(request);
             log.info("Deposit Saga initiated: sagaId={}, status={}", operation.getSagaId(), operation.getStatus());
-            return ResponseEntity.ok(operation);
+            return respond(operation, wait);
         } catch (Exception e) {
             log.error("Deposit failed: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
     }
 
     /**
      * Снятие денег (асинхронно через Saga).
+     * Параметр wait - как у пополнения.
      */
     @PostMapping("/withdraw")
-    public ResponseEntity<CashOperation> withdraw(@Valid @RequestBody CashOperationRequest request) {
+    public CompletableFuture<ResponseEntity<CashOperation>> withdraw(
+            @Valid @RequestBody CashOperationRequest request,
+            @RequestParam(required = false) Duration wait) {
         try {
             CashOperation operation = cashService.withdraw(request);
             log.info("Withdraw Saga initiated: sagaId={}, status={}", operation.getSagaId(), operation.getStatus());
-            return ResponseEntity.ok(operation);
+            return respond(operation, wait);
         } catch (Exception e) {
             log.error("Withdrawal failed: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
     }
 
-}
+    /**
+     * Текущее состояние операции.
+     */
+    @GetMapping("/operations/{sagaId}")
+    public ResponseEntity<CashOperation> getOperation(@PathVariable String sagaId) {
+        return ResponseEntity.of(sagaCompletionService.findOperation(sagaId));
+    }
+
+    /**
+     * Long-poll: ответ приходит сразу после завершения Saga или по истечении timeout
+     * (со статусом PENDING - клиент повторяет запрос).
+     */
+    @GetMapping("/operations/{sagaId}/await")
+    public CompletableFuture<ResponseEntity<CashOperation>> awaitOperation(
+            @PathVariable String sagaId,
+            @RequestParam(required = false) Duration timeout) {
+        return sagaCompletionService.awaitCompletion(sagaId, timeout)
+                .thenApply(ResponseEntity::of);
+    }
+
+    /**
+     * Server-Sent Events: одно событие "operation" с итоговым состоянием
+     * (или PENDING по истечении timeout), после чего поток закрывается.
+     */
+    @GetMapping(path = "/operations/{sagaId}/events", produces = "text/event-stream")
+    public SseEmitter operationEvents(
+            @PathVariable String sagaId,
+            @RequestParam(required = false) Duration timeout) {
+        Duration effectiveTimeout = sagaCompletionService.effectiveTimeout(timeout);
+        // Запас, чтобы событие PENDING успело уйти до закрытия потока контейнером
+        SseEmitter emitter = new SseEmitter(effectiveTimeout.plusSeconds(5).toMillis());
+
+        sagaCompletionService.awaitCompletion(sagaId, effectiveTimeout)
+                .whenComplete((operation, error) -> sendAndComplete(emitter, operation, error));
+        return emitter;
+    }
+
+    private CompletableFuture<ResponseEntity<CashOperation>> respond(CashOperation operation, Duration wait) {
+        if (wait == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(operation));
+        }
+        return sagaCompletionService.awaitCompletion(operation.getSagaId(), wait)
+                .thenApply(completed -> ResponseEntity.ok(completed.orElse(operation)));
+    }
 
+    private void sendAndComplete(SseEmitter emitter, Optional<CashOperation> operation, Throwable error) {
+        try {
+            if (error != null) {
+                emitter.completeWithError(error);
+                return;
+            }
+            if (operation.isEmpty()) {
+                emitter.send(SseEmitter.event().name("not-found").data(""));
+            } else {
+                emitter.send(SseEmitter.event()
+                        .name("operation")
+                        .id(operation.get().getSagaId())
+                        .data(operation.get()));
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился
+            log.debug("Failed to send SSE event: {}", e.getMessage());
+        }
+    }
+
+}
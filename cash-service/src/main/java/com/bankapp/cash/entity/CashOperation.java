@@ -48,6 +48,18 @@ public class CashOperation {
     @Column(name = "error_message")
     private String errorMessage;
 
+    /**
+     * Количество отправок запроса в accounts-service (повторы - SagaTimeoutSweeper).
+     */
+    @Column(nullable = false)
+    private Integer attempts = 1;
+
+    /**
+     * sagaId компенсирующей операции (если поздний успех пришёл после таймаута).
+     */
+    @Column(name = "compensation_saga_id", unique = true, length = 36)
+    private String compensationSagaId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
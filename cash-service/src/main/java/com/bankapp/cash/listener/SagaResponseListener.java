@@ -2,67 +2,137 @@ package com.bankapp.cash.listener;
 
 import com.bankapp.cash.entity.CashOperation;
 import com.bankapp.cash.entity.SagaStatus;
-import com.bankapp.cash.event.BalanceUpdateFailedEvent;
-import com.bankapp.cash.event.BalanceUpdatedEvent;
-import com.bankapp.cash.repository.CashOperationRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.nats.client.Connection;
-import io.nats.client.Dispatcher;
+import com.bankapp.cash.service.CashService;
+import com.bankapp.cash.service.SagaCompletionRegistry;
+import com.bankapp.cash.service.SagaResponse;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateFailedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.bankapp.saga.listener.MicroBatcher;
+import com.bankapp.saga.messaging.JetStreamSupport;
+import com.bankapp.saga.messaging.SagaSubscriber;
+import com.bankapp.saga.tracing.SagaTracing;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import io.nats.client.Message;
-import io.nats.client.Nats;
 import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Слушатель ответов Saga от accounts-service через NATS.
- * Обновляет статус CashOperation на основе результата обновления баланса.
+ * Обновляет статус CashOperation на основе результата обновления баланса
+ * и завершает ожидания клиентов в {@link SagaCompletionRegistry}.
+ *
+ * В режиме JetStream ответы читаются двумя durable pull consumer, сообщение
+ * подтверждается после обновления статуса, при ошибке - доставляется повторно.
+ *
+ * Ответы накапливаются в {@link MicroBatcher} (до batch-size или batch-linger)
+ * и применяются одной транзакцией {@link CashService#applySagaResponses}.
+ *
+ * Метрики: saga.listener.queue.depth (ответы в очереди), saga.listener.processing
+ * (время применения пачки; mode=batch или individual), saga.listener.batch.size.
+ *
+ * Трассировка: ответ получает span, продолжающий трассу операции (traceparent
+ * от accounts-service); span завершается после применения ответа.
  */
 @Service
 @Slf4j
 public class SagaResponseListener {
 
-    private final Connection natsConnection;
-    private final ObjectMapper objectMapper;
-    private final CashOperationRepository cashOperationRepository;
+    private static final String LISTENER_NAME = "balance-responses";
 
+    private final SagaSubscriber sagaSubscriber;
+    private final SagaEventCodec sagaEventCodec;
+    private final CashService cashService;
+    private final SagaCompletionRegistry completionRegistry;
+    private final SagaTracing sagaTracing;
+    private final MicroBatcher<InboundResponse> batcher;
+    private final Timer batchTimer;
+    private final Timer individualTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    @Autowired
     public SagaResponseListener(
             @Value("${nats.url:nats://localhost:4222}") String natsConnectionUrl,
             @Value("${application.saga.topics.balance-updated:saga.balance.updated}") String successTopic,
             @Value("${application.saga.topics.balance-update-failed:saga.balance.update.failed}") String failedTopic,
-            ObjectMapper objectMapper,
-            CashOperationRepository cashOperationRepository) throws IOException, InterruptedException {
-        
-        this.objectMapper = objectMapper;
-        this.cashOperationRepository = cashOperationRepository;
-        
-        // Подключаемся к NATS и создаем Dispatcher
-        this.natsConnection = Nats.connect(natsConnectionUrl);
-        Dispatcher dispatcher = natsConnection.createDispatcher();
+            @Value("${application.saga.jetstream.durable-prefix:cash}") String durablePrefix,
+            @Value("${application.saga.jetstream.fetch-batch:100}") int fetchBatch,
+            @Value("${application.saga.jetstream.fetch-wait:PT0.5s}") Duration fetchWait,
+            @Value("${application.saga.listener.batch-size:100}") int batchSize,
+            @Value("${application.saga.listener.batch-linger:PT0.005s}") Duration batchLinger,
+            @Value("${application.saga.listener.queue-capacity:1000}") int queueCapacity,
+            SagaEventCodec sagaEventCodec,
+            CashService cashService,
+            SagaCompletionRegistry completionRegistry,
+            JetStreamSupport jetStreamSupport,
+            SagaTracing sagaTracing,
+            MeterRegistry meterRegistry) throws IOException, InterruptedException {
+        this(new SagaSubscriber(natsConnectionUrl, jetStreamSupport, fetchBatch, fetchWait),
+                successTopic, failedTopic, durablePrefix, batchSize, batchLinger, queueCapacity,
+                sagaEventCodec, cashService, completionRegistry, sagaTracing, meterRegistry);
+    }
+
+    SagaResponseListener(SagaSubscriber sagaSubscriber, String successTopic, String failedTopic,
+                         String durablePrefix, int batchSize, Duration batchLinger, int queueCapacity,
+                         SagaEventCodec sagaEventCodec, CashService cashService,
+                         SagaCompletionRegistry completionRegistry, SagaTracing sagaTracing,
+                         MeterRegistry meterRegistry) throws IOException {
+        this.sagaEventCodec = sagaEventCodec;
+        this.cashService = cashService;
+        this.completionRegistry = completionRegistry;
+        this.sagaTracing = sagaTracing;
+        this.batcher = new MicroBatcher<>("saga-response-batcher", queueCapacity, batchSize, batchLinger,
+                this::applyBatch);
+
+        Gauge.builder("saga.listener.queue.depth", batcher, MicroBatcher::queuedCount)
+                .description("Saga responses waiting to be applied")
+                .tag("listener", LISTENER_NAME)
+                .register(meterRegistry);
+        this.batchTimer = processingTimer(meterRegistry, "batch");
+        this.individualTimer = processingTimer(meterRegistry, "individual");
+        this.batchSizeSummary = DistributionSummary.builder("saga.listener.batch.size")
+                .description("Saga responses per applied batch")
+                .tag("listener", LISTENER_NAME)
+                .register(meterRegistry);
         
         // Подписываемся на оба топика (success и failed)
-        dispatcher.subscribe(successTopic, this::handleSuccessMessage);
-        dispatcher.subscribe(failedTopic, this::handleFailedMessage);
+        this.sagaSubscriber = sagaSubscriber;
+        sagaSubscriber.subscribe(successTopic, durablePrefix + "-balance-updated", this::handleSuccessMessage);
+        sagaSubscriber.subscribe(failedTopic, durablePrefix + "-balance-update-failed", this::handleFailedMessage);
         
-        log.info("NATS Saga Response Listener started. Subscribed to: {} and {}", successTopic, failedTopic);
+        log.info("NATS Saga Response Listener started. Subscribed to: {} and {}, transport: {}",
+                successTopic, failedTopic, sagaSubscriber.isJetStream() ? "jetstream" : "core");
     }
 
     /**
      * Обработка успешного ответа (BalanceUpdatedEvent).
      */
     private void handleSuccessMessage(Message message) {
-        String messageData = new String(message.getData());
-        log.info("Received success Saga response: {}", messageData);
-
-        try {
-            BalanceUpdatedEvent event = objectMapper.readValue(messageData, BalanceUpdatedEvent.class);
-            updateOperationStatus(event.getSagaId(), SagaStatus.COMPLETED, null);
+        Span span = sagaTracing.startReceiveSpan(message);
+        try (Tracer.SpanInScope ignored = sagaTracing.inScope(span)) {
+            BalanceUpdatedEvent event = sagaEventCodec.decode(message, BalanceUpdatedEvent.class);
+            log.info("Received success Saga response: {}", event);
+            span.tag("saga.id", event.getSagaId());
+            enqueue(new SagaResponse(event.getSagaId(), SagaStatus.COMPLETED, null), message, span);
         } catch (Exception e) {
             log.error("Failed to process success Saga response: {}", e.getMessage(), e);
+            nak(message, e);
+            span.error(e).end();
         }
     }
 
@@ -70,37 +140,115 @@ public class SagaResponseListener {
      * Обработка ответа об ошибке (BalanceUpdateFailedEvent).
      */
     private void handleFailedMessage(Message message) {
-        String messageData = new String(message.getData());
-        log.info("Received failed Saga response: {}", messageData);
-
-        try {
-            BalanceUpdateFailedEvent event = objectMapper.readValue(messageData, BalanceUpdateFailedEvent.class);
-            updateOperationStatus(event.getSagaId(), SagaStatus.FAILED, event.getErrorMessage());
+        Span span = sagaTracing.startReceiveSpan(message);
+        try (Tracer.SpanInScope ignored = sagaTracing.inScope(span)) {
+            BalanceUpdateFailedEvent event = sagaEventCodec.decode(message, BalanceUpdateFailedEvent.class);
+            log.info("Received failed Saga response: {}", event);
+            span.tag("saga.id", event.getSagaId());
+            enqueue(new SagaResponse(event.getSagaId(), SagaStatus.FAILED, event.getErrorMessage()), message, span);
         } catch (Exception e) {
             log.error("Failed to process failed Saga response: {}", e.getMessage(), e);
+            nak(message, e);
+            span.error(e).end();
         }
     }
 
+    private void enqueue(SagaResponse response, Message message, Span span) throws InterruptedException {
+        batcher.submit(new InboundResponse(response, message, span));
+    }
+
     /**
-     * Обновить статус CashOperation.
+     * Применить пачку ответов одной транзакцией; при ошибке - по одному,
+     * чтобы один сбойный ответ не задерживал остальные.
      */
-    @Transactional
-    public void updateOperationStatus(String sagaId, SagaStatus status, String errorMessage) {
-        log.info("Updating operation status: sagaId={}, status={}", sagaId, status);
+    private void applyBatch(List<InboundResponse> batch) {
+        batchSizeSummary.record(batch.size());
+        Timer.Sample sample = Timer.start();
+        List<CashOperation> finished;
+        try {
+            finished = cashService.applySagaResponses(batch.stream().map(InboundResponse::getResponse).toList());
+            sample.stop(batchTimer);
+        } catch (Exception e) {
+            log.error("Saga response batch of {} failed, applying one by one: {}", batch.size(), e.getMessage());
+            individualTimer.record(() -> applyIndividually(batch));
+            return;
+        }
 
-        CashOperation operation = cashOperationRepository.findBySagaId(sagaId)
-                .orElseThrow(() -> new IllegalArgumentException("Operation not found for sagaId: " + sagaId));
+        batch.forEach(inbound -> {
+            ack(inbound.getMessage());
+            inbound.getSpan().end();
+        });
+        // Ожидающим клиентам - после коммита
+        finished.forEach(completionRegistry::complete);
+    }
 
-        operation.setStatus(status);
-        operation.setErrorMessage(errorMessage);
-        
-        cashOperationRepository.save(operation);
-        log.info("Operation status updated: sagaId={}, status={}", sagaId, status);
+    private void applyIndividually(List<InboundResponse> batch) {
+        for (InboundResponse inbound : batch) {
+            SagaResponse response = inbound.getResponse();
+            Span span = inbound.getSpan();
+            try (Tracer.SpanInScope ignored = sagaTracing.inScope(span)) {
+                Optional<CashOperation> operation = cashService.applySagaResponse(
+                        response.getSagaId(), response.getStatus(), response.getErrorMessage());
+                ack(inbound.getMessage());
+                operation.ifPresent(completionRegistry::complete);
+            } catch (Exception e) {
+                log.error("Failed to apply Saga response {}: {}", response, e.getMessage(), e);
+                nak(inbound.getMessage(), e);
+                span.error(e);
+            } finally {
+                span.end();
+            }
+        }
+    }
+
+    private static Timer processingTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("saga.listener.processing")
+                .description("Time to apply a batch of Saga responses")
+                .tag("listener", LISTENER_NAME)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void ack(Message message) {
+        if (message.isJetStream()) {
+            message.ack();
+        }
+    }
+
+    /**
+     * Вернуть сообщение на повторную доставку; нечитаемое сообщение - отбросить.
+     */
+    private void nak(Message message, Exception error) {
+        if (!message.isJetStream()) {
+            return;
+        }
+        if (error instanceof IOException) {
+            message.term();
+        } else {
+            message.nak();
+        }
     }
 
     @PreDestroy
     public void destroy() throws InterruptedException {
-        natsConnection.close();
+        // Прекращаем приём, дообрабатываем накопленное; соединение нужно,
+        // чтобы в режиме JetStream подтвердить обработанное
+        sagaSubscriber.stopReceiving();
+        batcher.shutdown(Duration.ofSeconds(10));
+        sagaSubscriber.close();
+    }
+
+    /**
+     * Ответ в очереди вместе с исходным сообщением (для подтверждения JetStream)
+     * и span его получения.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class InboundResponse {
+        private final SagaResponse response;
+        private final Message message;
+        private final Span span;
     }
 }
 
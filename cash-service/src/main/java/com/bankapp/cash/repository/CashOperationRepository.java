@@ -2,8 +2,13 @@ package com.bankapp.cash.repository;
 
 import com.bankapp.cash.entity.CashOperation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +18,37 @@ public interface CashOperationRepository extends JpaRepository<CashOperation, Lo
      * Найти операцию по sagaId (для Choreography Saga Pattern).
      */
     Optional<CashOperation> findBySagaId(String sagaId);
+
+    Optional<CashOperation> findByCompensationSagaId(String compensationSagaId);
+
+    List<CashOperation> findAllBySagaIdIn(Collection<String> sagaIds);
+
+    /**
+     * Завершить пачку операций одним UPDATE (только из PENDING).
+     * Возвращает sagaId изменённых строк: операция, которую между чтением и UPDATE
+     * завершил другой процесс (например, таймаут), в результат не попадает.
+     */
+    @Query(value = """
+            UPDATE cash.cash_operations
+            SET status = :status, error_message = :errorMessage, updated_at = :updatedAt
+            WHERE saga_id IN (:sagaIds) AND status = 'PENDING'
+            RETURNING saga_id
+            """, nativeQuery = true)
+    List<String> finishPending(@Param("sagaIds") Collection<String> sagaIds,
+                               @Param("status") String status,
+                               @Param("errorMessage") String errorMessage,
+                               @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Захватить пачку операций, зависших в PENDING дольше cutoff (по частичному индексу).
+     * Несколько экземпляров cash-service не обрабатывают одни и те же строки.
+     */
+    @Query(value = """
+            SELECT * FROM cash.cash_operations
+            WHERE status = 'PENDING' AND updated_at < :cutoff
+            ORDER BY updated_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<CashOperation> claimStuckOperations(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
 }
@@ -0,0 +1,109 @@
+package com.bankapp.cash.scheduler;
+
+import com.bankapp.cash.entity.CashOperation;
+import com.bankapp.cash.repository.CashOperationRepository;
+import com.bankapp.cash.service.CashService;
+import com.bankapp.cash.service.SagaCompletionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обработка зависших Saga: операции в PENDING дольше deadline.
+ *
+ * Пока не исчерпаны попытки, запрос отправляется повторно через Outbox с тем же sagaId,
+ * затем операция завершается FAILED. Если успех всё же придёт позже, CashService
+ * компенсирует его (COMPENSATED).
+ *
+ * Работает пачками по batch-size в отдельных транзакциях и не больше max-batches за запуск;
+ * строки захватываются FOR UPDATE SKIP LOCKED, поэтому экземпляры не мешают друг другу.
+ */
+@Component
+@Slf4j
+public class SagaTimeoutSweeper {
+
+    private final CashOperationRepository cashOperationRepository;
+    private final CashService cashService;
+    private final SagaCompletionRegistry completionRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration deadline;
+    private final int maxAttempts;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public SagaTimeoutSweeper(CashOperationRepository cashOperationRepository,
+                              CashService cashService,
+                              SagaCompletionRegistry completionRegistry,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${application.saga.sweeper.deadline:PT1m}") Duration deadline,
+                              @Value("${application.saga.sweeper.max-attempts:3}") int maxAttempts,
+                              @Value("${application.saga.sweeper.batch-size:100}") int batchSize,
+                              @Value("${application.saga.sweeper.max-batches:10}") int maxBatches) {
+        this.cashOperationRepository = cashOperationRepository;
+        this.cashService = cashService;
+        this.completionRegistry = completionRegistry;
+        this.transactionTemplate = transactionTemplate;
+        this.deadline = deadline;
+        this.maxAttempts = maxAttempts;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${application.saga.sweeper.interval:PT30s}")
+    public void sweep() {
+        int retried = 0;
+        List<CashOperation> failed = new ArrayList<>();
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            SweepResult result = transactionTemplate.execute(status -> sweepBatch());
+            if (result == null) {
+                break;
+            }
+            retried += result.retried;
+            failed.addAll(result.failed);
+            // Ожидающим клиентам - только после коммита
+            result.failed.forEach(completionRegistry::complete);
+            if (result.claimed < batchSize) {
+                break;
+            }
+        }
+
+        if (retried > 0 || !failed.isEmpty()) {
+            log.info("Stuck Saga sweep: {} re-sent, {} failed by timeout", retried, failed.size());
+        }
+    }
+
+    private SweepResult sweepBatch() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(deadline);
+        List<CashOperation> stuck = cashOperationRepository.claimStuckOperations(cutoff, batchSize);
+
+        SweepResult result = new SweepResult(stuck.size());
+        for (CashOperation operation : stuck) {
+            if (operation.getAttempts() < maxAttempts) {
+                cashService.retrySaga(operation);
+                result.retried++;
+            } else {
+                cashService.failTimedOut(operation);
+                result.failed.add(operation);
+            }
+        }
+        return result;
+    }
+
+    private static class SweepResult {
+        private final int claimed;
+        private int retried;
+        private final List<CashOperation> failed = new ArrayList<>();
+
+        SweepResult(int claimed) {
+            this.claimed = claimed;
+        }
+    }
+}
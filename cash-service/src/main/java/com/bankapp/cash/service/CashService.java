@@ -3,20 +3,30 @@ package com.bankapp.cash.service;
 import com.bankapp.cash.dto.CashOperationRequest;
 import com.bankapp.cash.entity.CashOperation;
 import com.bankapp.cash.entity.OperationType;
-import com.bankapp.cash.entity.OutboxEvent;
-import com.bankapp.cash.entity.SagaEventType;
 import com.bankapp.cash.entity.SagaStatus;
-import com.bankapp.cash.event.BalanceUpdateRequestedEvent;
 import com.bankapp.cash.repository.CashOperationRepository;
-import com.bankapp.cash.repository.OutboxEventRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.event.SagaEventType;
+import com.bankapp.saga.outbox.OutboxEvent;
+import com.bankapp.saga.outbox.OutboxEventRepository;
+import com.bankapp.saga.tracing.SagaTracing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -29,7 +39,11 @@ public class CashService {
 
     private final CashOperationRepository cashOperationRepository;
     private final OutboxEventRepository outboxEventRepository;
-    private final ObjectMapper objectMapper;
+    private final SagaEventCodec sagaEventCodec;
+    private final SagaMetrics sagaMetrics;
+    private final SagaTracing sagaTracing;
+
+    private static final String COMPENSATION_OPERATION = "COMPENSATION";
 
     /**
      * Пополнение счёта (Choreography Saga Pattern с Transactional Outbox).
@@ -76,45 +90,201 @@ public class CashService {
         log.debug("Cash operation created: id={}, sagaId={}", savedOperation.getId(), sagaId);
 
         // 2. Сохранить Saga событие в Outbox (в той же транзакции)
-        // Для WITHDRAW сумма отрицательная, для DEPOSIT - положительная
-        BigDecimal eventAmount = operationType == OperationType.WITHDRAW 
-                ? request.getValue().negate() 
-                : request.getValue();
-        
+        requestBalanceUpdate(savedOperation, sagaId, signedAmount(savedOperation), operationType.name());
+        log.info("Saga event saved to Outbox: sagaId={}", sagaId);
+        sagaMetrics.sagaStarted(savedOperation);
+
+        return savedOperation;
+    }
+
+    /**
+     * Применить ответ accounts-service к операции.
+     *
+     * Статус меняется только из PENDING. Успех, пришедший после отметки FAILED по таймауту,
+     * компенсируется обратной операцией (статус COMPENSATED). Ответы на компенсирующие
+     * запросы только журналируются.
+     *
+     * @return операция, если ответ относится к ней (а не к компенсации)
+     */
+    @Transactional
+    public Optional<CashOperation> applySagaResponse(String sagaId, SagaStatus status, String errorMessage) {
+        log.info("Updating operation status: sagaId={}, status={}", sagaId, status);
+
+        Optional<CashOperation> found = cashOperationRepository.findBySagaId(sagaId);
+        if (found.isEmpty()) {
+            CashOperation compensated = cashOperationRepository.findByCompensationSagaId(sagaId)
+                    .orElseThrow(() -> new IllegalArgumentException("Operation not found for sagaId: " + sagaId));
+            if (status == SagaStatus.COMPLETED) {
+                log.info("Compensation completed: sagaId={}, compensationSagaId={}", compensated.getSagaId(), sagaId);
+            } else {
+                log.error("Compensation failed, manual intervention required: sagaId={}, compensationSagaId={}, error={}",
+                        compensated.getSagaId(), sagaId, errorMessage);
+            }
+            return Optional.empty();
+        }
+
+        CashOperation operation = found.get();
+        if (operation.getStatus() == SagaStatus.PENDING) {
+            operation.setStatus(status);
+            operation.setErrorMessage(errorMessage);
+            cashOperationRepository.save(operation);
+            sagaMetrics.sagaFinished(operation, status.name());
+            log.info("Operation status updated: sagaId={}, status={}", sagaId, status);
+        } else if (operation.getStatus() == SagaStatus.FAILED && status == SagaStatus.COMPLETED) {
+            // Баланс изменён после того, как операция была отменена по таймауту
+            compensate(operation);
+        } else {
+            log.info("Ignoring Saga response for finished operation: sagaId={}, current={}, received={}",
+                    sagaId, operation.getStatus(), status);
+        }
+        return Optional.of(operation);
+    }
+
+    /**
+     * Применить пачку ответов accounts-service в одной транзакции:
+     * один UPDATE ... WHERE saga_id IN (...) AND status = 'PENDING' RETURNING saga_id
+     * на каждую пару (статус, сообщение об ошибке) и один SELECT завершённых операций.
+     * Ответы, которые UPDATE не применил (операция уже завершена - в том числе по таймауту
+     * между чтением и UPDATE, ответ на компенсацию), обрабатываются по одному через
+     * {@link #applySagaResponse}: там поздний успех после FAILED компенсируется.
+     *
+     * @return операции, получившие итоговый статус
+     */
+    @Transactional
+    public List<CashOperation> applySagaResponses(List<SagaResponse> responses) {
+        Map<SagaResponseGroup, List<String>> groups = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (SagaResponse response : responses) {
+            // Повторная доставка в той же пачке - первый ответ выигрывает, как и без пачек
+            if (seen.add(response.getSagaId())) {
+                groups.computeIfAbsent(new SagaResponseGroup(response.getStatus(), response.getErrorMessage()),
+                        group -> new ArrayList<>()).add(response.getSagaId());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, SagaStatus> updated = new HashMap<>();
+        List<SagaResponse> individually = new ArrayList<>();
+        groups.forEach((group, sagaIds) -> {
+            Set<String> changed = new HashSet<>(cashOperationRepository.finishPending(
+                    sagaIds, group.status().name(), group.errorMessage(), now));
+            for (String sagaId : sagaIds) {
+                if (changed.contains(sagaId)) {
+                    updated.put(sagaId, group.status());
+                } else {
+                    individually.add(new SagaResponse(sagaId, group.status(), group.errorMessage()));
+                }
+            }
+        });
+
+        List<CashOperation> finished = new ArrayList<>();
+        if (!updated.isEmpty()) {
+            // Читаются после UPDATE - уже с итоговым статусом
+            for (CashOperation operation : cashOperationRepository.findAllBySagaIdIn(updated.keySet())) {
+                sagaMetrics.sagaFinished(operation, updated.get(operation.getSagaId()).name());
+                finished.add(operation);
+            }
+        }
+
+        for (SagaResponse response : individually) {
+            applySagaResponse(response.getSagaId(), response.getStatus(), response.getErrorMessage())
+                    .ifPresent(finished::add);
+        }
+
+        log.info("Applied {} Saga responses: {} batched updates, {} individually",
+                responses.size(), groups.size(), individually.size());
+        return finished;
+    }
+
+    private record SagaResponseGroup(SagaStatus status, String errorMessage) {
+    }
+
+    /**
+     * Повторно отправить запрос зависшей операции с тем же sagaId:
+     * accounts-service не применит его дважды, а повторит прежний ответ.
+     */
+    @Transactional
+    public void retrySaga(CashOperation operation) {
+        operation.setAttempts(operation.getAttempts() + 1);
+        cashOperationRepository.save(operation);
+
+        requestBalanceUpdate(operation, operation.getSagaId(), signedAmount(operation),
+                operation.getOperationType().name());
+        log.info("Saga request re-sent: sagaId={}, attempt={}", operation.getSagaId(), operation.getAttempts());
+    }
+
+    /**
+     * Завершить зависшую операцию ошибкой после исчерпания повторов.
+     */
+    @Transactional
+    public void failTimedOut(CashOperation operation) {
+        operation.setStatus(SagaStatus.FAILED);
+        operation.setErrorMessage("Saga timed out after " + operation.getAttempts() + " attempts");
+        cashOperationRepository.save(operation);
+        sagaMetrics.sagaFinished(operation, SagaMetrics.OUTCOME_TIMED_OUT);
+        log.warn("Saga timed out: sagaId={}, attempts={}", operation.getSagaId(), operation.getAttempts());
+    }
+
+    /**
+     * Отменить изменение баланса обратной операцией с детерминированным sagaId
+     * (повторная компенсация не применится дважды).
+     */
+    private void compensate(CashOperation operation) {
+        String compensationSagaId = UUID.nameUUIDFromBytes(
+                ("compensate:" + operation.getSagaId()).getBytes(StandardCharsets.UTF_8)).toString();
+
+        operation.setStatus(SagaStatus.COMPENSATED);
+        operation.setCompensationSagaId(compensationSagaId);
+        operation.setErrorMessage("Balance updated after timeout, change reversed");
+        cashOperationRepository.save(operation);
+        sagaMetrics.sagaFinished(operation, SagaStatus.COMPENSATED.name());
+
+        requestBalanceUpdate(operation, compensationSagaId, signedAmount(operation).negate(), COMPENSATION_OPERATION);
+        log.warn("Late Saga success compensated: sagaId={}, compensationSagaId={}",
+                operation.getSagaId(), compensationSagaId);
+    }
+
+    /**
+     * Сохранить в Outbox запрос на изменение баланса.
+     */
+    private void requestBalanceUpdate(CashOperation operation, String sagaId, BigDecimal amount, String operationType) {
         BalanceUpdateRequestedEvent event = BalanceUpdateRequestedEvent.builder()
                 .sagaId(sagaId)
-                .operationId(savedOperation.getId())
-                .login(request.getLogin())
-                .currency(request.getCurrency())
-                .amount(eventAmount)
-                .operationType(operationType.name())
+                .operationId(operation.getId())
+                .login(operation.getUserLogin())
+                .currency(operation.getCurrency())
+                .amount(amount)
+                .operationType(operationType)
                 .build();
-        
-        saveSagaEventToOutbox(SagaEventType.SAGA_BALANCE_UPDATE_REQUESTED, event);
-        log.info("Saga event saved to Outbox: sagaId={}", sagaId);
 
-        return savedOperation;
+        saveSagaEventToOutbox(SagaEventType.SAGA_BALANCE_UPDATE_REQUESTED, operation.getUserLogin(), event);
+    }
+
+    /**
+     * Для WITHDRAW сумма отрицательная, для DEPOSIT - положительная.
+     */
+    private BigDecimal signedAmount(CashOperation operation) {
+        return operation.getOperationType() == OperationType.WITHDRAW
+                ? operation.getAmount().negate()
+                : operation.getAmount();
     }
 
     /**
      * Сохранить Saga событие в Outbox для последующей отправки в NATS.
+     * События одного пользователя (login) отправляются в порядке сохранения.
      */
-    private void saveSagaEventToOutbox(SagaEventType eventType, Object eventPayload) {
-        try {
-            String payloadJson = objectMapper.writeValueAsString(eventPayload);
-            
-            OutboxEvent outboxEvent = OutboxEvent.builder()
-                    .eventType(eventType.name())
-                    .payload(payloadJson)
-                    .build();
-            
-            outboxEventRepository.save(outboxEvent);
-            log.debug("Saga event saved to Outbox: type={}", eventType);
-            
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize Saga event: {}", e.getMessage());
-            throw new RuntimeException("Failed to save Saga event to Outbox", e);
-        }
+    private void saveSagaEventToOutbox(SagaEventType eventType, String login, Object eventPayload) {
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .aggregateType(OutboxEvent.AGGREGATE_TYPE_USER)
+                .aggregateId(login)
+                .eventType(eventType.name())
+                .payloadBytes(sagaEventCodec.encode(eventPayload))
+                .contentType(sagaEventCodec.contentType())
+                .traceContext(sagaTracing.currentTraceContext())
+                .build();
+
+        outboxEventRepository.save(outboxEvent);
+        log.debug("Saga event saved to Outbox: type={}", eventType);
     }
 }
 
@@ -0,0 +1,58 @@
+package com.bankapp.cash.service;
+
+import com.bankapp.cash.entity.CashOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Реестр ожидающих завершения Saga (в памяти экземпляра cash-service).
+ *
+ * Клиенты (long-poll, SSE, синхронный режим) регистрируют ожидание по sagaId,
+ * SagaResponseListener завершает его после сохранения итогового статуса.
+ */
+@Component
+@Slf4j
+public class SagaCompletionRegistry {
+
+    private final Map<String, List<CompletableFuture<CashOperation>>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Зарегистрировать ожидание. Регистрировать нужно до чтения статуса из БД,
+     * иначе завершение между чтением и регистрацией будет пропущено.
+     */
+    public CompletableFuture<CashOperation> register(String sagaId) {
+        CompletableFuture<CashOperation> waiter = new CompletableFuture<>();
+        waiters.computeIfAbsent(sagaId, id -> new CopyOnWriteArrayList<>()).add(waiter);
+        return waiter;
+    }
+
+    public void unregister(String sagaId, CompletableFuture<CashOperation> waiter) {
+        waiters.computeIfPresent(sagaId, (id, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * Завершить все ожидания операции (вызывается после коммита итогового статуса).
+     */
+    public void complete(CashOperation operation) {
+        List<CompletableFuture<CashOperation>> completed = waiters.remove(operation.getSagaId());
+        if (completed == null) {
+            return;
+        }
+        log.debug("Completing {} waiters: sagaId={}, status={}",
+                completed.size(), operation.getSagaId(), operation.getStatus());
+        completed.forEach(waiter -> waiter.complete(operation));
+    }
+
+    public int waiterCount() {
+        return waiters.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,75 @@
+package com.bankapp.cash.service;
+
+import com.bankapp.cash.entity.CashOperation;
+import com.bankapp.cash.entity.SagaStatus;
+import com.bankapp.cash.repository.CashOperationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ожидание завершения Saga без опроса БД клиентом.
+ *
+ * Статус читается из БД один раз; если операция ещё PENDING, ответ приходит
+ * из {@link SagaCompletionRegistry} или по истечении timeout (тогда - текущее состояние PENDING,
+ * клиент повторяет запрос). Реестр локален для экземпляра: если ответ Saga обработал
+ * другой экземпляр, ожидание завершится по timeout.
+ */
+@Service
+@Slf4j
+public class SagaCompletionService {
+
+    private final CashOperationRepository cashOperationRepository;
+    private final SagaCompletionRegistry completionRegistry;
+    private final Duration defaultTimeout;
+    private final Duration maxTimeout;
+
+    public SagaCompletionService(CashOperationRepository cashOperationRepository,
+                                 SagaCompletionRegistry completionRegistry,
+                                 @Value("${application.saga.completion.default-timeout:PT25s}") Duration defaultTimeout,
+                                 @Value("${application.saga.completion.max-timeout:PT60s}") Duration maxTimeout) {
+        this.cashOperationRepository = cashOperationRepository;
+        this.completionRegistry = completionRegistry;
+        this.defaultTimeout = defaultTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+
+    public Optional<CashOperation> findOperation(String sagaId) {
+        return cashOperationRepository.findBySagaId(sagaId);
+    }
+
+    /**
+     * Дождаться итогового статуса операции не дольше timeout (null - значение по умолчанию).
+     * Пустой результат - операция не найдена.
+     */
+    public CompletableFuture<Optional<CashOperation>> awaitCompletion(String sagaId, Duration timeout) {
+        CompletableFuture<CashOperation> waiter = completionRegistry.register(sagaId);
+
+        Optional<CashOperation> current = cashOperationRepository.findBySagaId(sagaId);
+        if (current.isEmpty() || current.get().getStatus() != SagaStatus.PENDING) {
+            completionRegistry.unregister(sagaId, waiter);
+            return CompletableFuture.completedFuture(current);
+        }
+
+        CashOperation pending = current.get();
+        return waiter
+                .completeOnTimeout(pending, effectiveTimeout(timeout).toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((operation, error) -> completionRegistry.unregister(sagaId, waiter))
+                .thenApply(Optional::of);
+    }
+
+    /**
+     * Ограничить запрошенный timeout сверху, чтобы не держать соединения бесконечно.
+     */
+    public Duration effectiveTimeout(Duration requested) {
+        if (requested == null || requested.isNegative()) {
+            return defaultTimeout;
+        }
+        return requested.compareTo(maxTimeout) > 0 ? maxTimeout : requested;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bankapp.cash.service;
+
+import com.bankapp.cash.entity.CashOperation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Метрики Saga кассовых операций.
+ *
+ * saga.started - начатые операции по типу; saga.duration - время от создания операции
+ * до итогового статуса по типу и исходу (COMPLETED, FAILED, COMPENSATED, TIMED_OUT).
+ * Значения записываются после коммита транзакции: откаченная пачка ответов,
+ * применённая затем по одному, не учитывается дважды.
+ */
+@Component
+@RequiredArgsConstructor
+public class SagaMetrics {
+
+    public static final String OUTCOME_TIMED_OUT = "TIMED_OUT";
+
+    private final MeterRegistry meterRegistry;
+
+    public void sagaStarted(CashOperation operation) {
+        String operationType = operation.getOperationType().name();
+        afterCommit(() -> meterRegistry.counter("saga.started", "operation", operationType).increment());
+    }
+
+    /**
+     * Операция получила итоговый статус; outcome - статус или {@link #OUTCOME_TIMED_OUT}.
+     */
+    public void sagaFinished(CashOperation operation, String outcome) {
+        if (operation.getCreatedAt() == null) {
+            return;
+        }
+        Duration duration = Duration.between(operation.getCreatedAt(), LocalDateTime.now());
+        Timer timer = Timer.builder("saga.duration")
+                .description("Time from cash operation creation to its final status")
+                .tag("operation", operation.getOperationType().name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        afterCommit(() -> timer.record(duration));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
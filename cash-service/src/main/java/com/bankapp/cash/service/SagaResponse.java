@@ -0,0 +1,19 @@
+package com.bankapp.cash.service;
+
+import com.bankapp.cash.entity.SagaStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Ответ accounts-service по Saga: итоговый статус операции.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class SagaResponse {
+
+    private final String sagaId;
+    private final SagaStatus status;
+    private final String errorMessage;
+}
@@ -0,0 +1,162 @@
+package com.bankapp.cash.listener;
+
+import com.bankapp.cash.entity.CashOperation;
+import com.bankapp.cash.entity.SagaStatus;
+import com.bankapp.cash.service.CashService;
+import com.bankapp.cash.service.SagaCompletionRegistry;
+import com.bankapp.cash.service.SagaResponse;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.BalanceUpdateFailedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.bankapp.saga.messaging.SagaSubscriber;
+import com.bankapp.saga.tracing.SagaTracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link SagaResponseListener}: ответы применяются пачкой, сообщения JetStream
+ * подтверждаются только после коммита; при сбое пачки - по одному.
+ */
+class SagaResponseListenerTest {
+
+    private static final String SUCCESS_TOPIC = "saga.balance.updated";
+    private static final String FAILED_TOPIC = "saga.balance.update.failed";
+
+    private final SagaEventCodec codec = new SagaEventCodec(new ObjectMapper(), "binary");
+    private CashService cashService;
+    private SagaCompletionRegistry completionRegistry;
+    private SagaResponseListener listener;
+    private MessageHandler successHandler;
+    private MessageHandler failedHandler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cashService = mock(CashService.class);
+        completionRegistry = mock(SagaCompletionRegistry.class);
+        SagaTracing sagaTracing = mock(SagaTracing.class);
+        when(sagaTracing.startReceiveSpan(any())).thenAnswer(invocation -> mock(Span.class, RETURNS_SELF));
+        SagaSubscriber sagaSubscriber = mock(SagaSubscriber.class);
+
+        // Пачка набирается за linger: ответы, отправленные подряд, попадают в одну
+        listener = new SagaResponseListener(sagaSubscriber, SUCCESS_TOPIC, FAILED_TOPIC, "cash",
+                10, Duration.ofMillis(200), 100, codec, cashService, completionRegistry, sagaTracing,
+                new SimpleMeterRegistry());
+
+        ArgumentCaptor<MessageHandler> success = ArgumentCaptor.forClass(MessageHandler.class);
+        ArgumentCaptor<MessageHandler> failed = ArgumentCaptor.forClass(MessageHandler.class);
+        verify(sagaSubscriber).subscribe(eq(SUCCESS_TOPIC), any(), success.capture());
+        verify(sagaSubscriber).subscribe(eq(FAILED_TOPIC), any(), failed.capture());
+        successHandler = success.getValue();
+        failedHandler = failed.getValue();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        listener.destroy();
+    }
+
+    @Test
+    void acksBatchOnlyAfterItIsApplied() throws Exception {
+        CashOperation first = operation("saga-1");
+        CashOperation second = operation("saga-2");
+        when(cashService.applySagaResponses(anyList())).thenReturn(List.of(first, second));
+        Message success = message(BalanceUpdatedEvent.builder().sagaId("saga-1").build());
+        Message failed = message(BalanceUpdateFailedEvent.builder().sagaId("saga-2").errorMessage("no funds").build());
+
+        successHandler.onMessage(success);
+        failedHandler.onMessage(failed);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SagaResponse>> responses = ArgumentCaptor.forClass(List.class);
+        verify(cashService, timeout(5000)).applySagaResponses(responses.capture());
+        assertThat(responses.getValue())
+                .extracting(SagaResponse::getSagaId, SagaResponse::getStatus)
+                .containsExactly(
+                        tuple("saga-1", SagaStatus.COMPLETED),
+                        tuple("saga-2", SagaStatus.FAILED));
+
+        verify(completionRegistry, timeout(5000)).complete(second);
+        InOrder order = inOrder(cashService, success, failed, completionRegistry);
+        order.verify(cashService).applySagaResponses(anyList());
+        order.verify(success).ack();
+        order.verify(failed).ack();
+        order.verify(completionRegistry).complete(first);
+        order.verify(completionRegistry).complete(second);
+        verify(cashService, never()).applySagaResponse(any(), any(), any());
+    }
+
+    @Test
+    void retriesOneByOneAfterBatchFailure() throws Exception {
+        when(cashService.applySagaResponses(anyList())).thenThrow(new IllegalStateException("deadlock"));
+        CashOperation applied = operation("saga-1");
+        when(cashService.applySagaResponse("saga-1", SagaStatus.COMPLETED, null)).thenReturn(Optional.of(applied));
+        when(cashService.applySagaResponse("saga-2", SagaStatus.COMPLETED, null))
+                .thenThrow(new IllegalStateException("still failing"));
+        Message good = message(BalanceUpdatedEvent.builder().sagaId("saga-1").build());
+        Message bad = message(BalanceUpdatedEvent.builder().sagaId("saga-2").build());
+
+        successHandler.onMessage(good);
+        successHandler.onMessage(bad);
+
+        verify(bad, timeout(5000)).nak();
+        verify(good).ack();
+        verify(completionRegistry).complete(applied);
+        verify(bad, never()).ack();
+        InOrder order = inOrder(cashService, good);
+        order.verify(cashService).applySagaResponses(anyList());
+        order.verify(cashService).applySagaResponse("saga-1", SagaStatus.COMPLETED, null);
+        order.verify(good).ack();
+    }
+
+    @Test
+    void terminatesUndecodableMessageWithoutApplying() throws Exception {
+        Message garbage = mock(Message.class);
+        // Двоичный формат, неизвестный тип события
+        when(garbage.getData()).thenReturn(new byte[]{2, 99});
+        when(garbage.isJetStream()).thenReturn(true);
+
+        successHandler.onMessage(garbage);
+
+        verify(garbage).term();
+        verify(garbage, never()).ack();
+        verify(cashService, never()).applySagaResponses(anyList());
+    }
+
+    private Message message(Object event) {
+        Message message = mock(Message.class);
+        when(message.getData()).thenReturn(codec.encode(event));
+        when(message.isJetStream()).thenReturn(true);
+        return message;
+    }
+
+    private static CashOperation operation(String sagaId) {
+        CashOperation operation = new CashOperation();
+        operation.setSagaId(sagaId);
+        return operation;
+    }
+}
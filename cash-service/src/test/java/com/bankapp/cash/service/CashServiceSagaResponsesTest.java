@@ -0,0 +1,119 @@
+package com.bankapp.cash.service;
+
+import com.bankapp.cash.entity.CashOperation;
+import com.bankapp.cash.entity.OperationType;
+import com.bankapp.cash.entity.SagaStatus;
+import com.bankapp.cash.repository.CashOperationRepository;
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.SagaEventType;
+import com.bankapp.saga.outbox.OutboxEvent;
+import com.bankapp.saga.outbox.OutboxEventRepository;
+import com.bankapp.saga.tracing.SagaTracing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link CashService#applySagaResponses}: итоговыми считаются только операции,
+ * которые изменил UPDATE, остальные ответы проходят через applySagaResponse.
+ */
+class CashServiceSagaResponsesTest {
+
+    private CashOperationRepository cashOperationRepository;
+    private OutboxEventRepository outboxEventRepository;
+    private CashService cashService;
+
+    @BeforeEach
+    void setUp() {
+        cashOperationRepository = mock(CashOperationRepository.class);
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        SagaTracing sagaTracing = mock(SagaTracing.class);
+        cashService = new CashService(cashOperationRepository, outboxEventRepository,
+                new SagaEventCodec(new ObjectMapper(), "binary"),
+                new SagaMetrics(new SimpleMeterRegistry()), sagaTracing);
+    }
+
+    @Test
+    void reportsOnlyOperationsChangedByUpdate() {
+        CashOperation first = operation("saga-1", SagaStatus.COMPLETED);
+        CashOperation second = operation("saga-2", SagaStatus.COMPLETED);
+        when(cashOperationRepository.finishPending(anyCollection(), eq("COMPLETED"), any(), any()))
+                .thenReturn(List.of("saga-1", "saga-2"));
+        when(cashOperationRepository.findAllBySagaIdIn(anyCollection())).thenReturn(List.of(first, second));
+
+        List<CashOperation> finished = cashService.applySagaResponses(List.of(
+                new SagaResponse("saga-1", SagaStatus.COMPLETED, null),
+                new SagaResponse("saga-2", SagaStatus.COMPLETED, null)));
+
+        assertThat(finished).containsExactly(first, second);
+        verify(cashOperationRepository, never()).findBySagaId(anyString());
+    }
+
+    @Test
+    void lateSuccessAfterConcurrentTimeoutIsCompensated() {
+        // Между чтением и UPDATE таймаут успел перевести saga-2 в FAILED: UPDATE её не вернул
+        CashOperation completed = operation("saga-1", SagaStatus.COMPLETED);
+        CashOperation timedOut = operation("saga-2", SagaStatus.FAILED);
+        when(cashOperationRepository.finishPending(anyCollection(), eq("COMPLETED"), any(), any()))
+                .thenReturn(List.of("saga-1"));
+        when(cashOperationRepository.findAllBySagaIdIn(anyCollection())).thenReturn(List.of(completed));
+        when(cashOperationRepository.findBySagaId("saga-2")).thenReturn(Optional.of(timedOut));
+
+        List<CashOperation> finished = cashService.applySagaResponses(List.of(
+                new SagaResponse("saga-1", SagaStatus.COMPLETED, null),
+                new SagaResponse("saga-2", SagaStatus.COMPLETED, null)));
+
+        assertThat(timedOut.getStatus()).isEqualTo(SagaStatus.COMPENSATED);
+        assertThat(timedOut.getCompensationSagaId()).isNotNull();
+        assertThat(finished).containsExactly(completed, timedOut);
+
+        ArgumentCaptor<OutboxEvent> compensation = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(compensation.capture());
+        assertThat(compensation.getValue().getEventType())
+                .isEqualTo(SagaEventType.SAGA_BALANCE_UPDATE_REQUESTED.name());
+    }
+
+    @Test
+    void duplicateResponseInBatchIsAppliedOnce() {
+        when(cashOperationRepository.finishPending(anyCollection(), eq("COMPLETED"), any(), any()))
+                .thenReturn(List.of("saga-1"));
+        when(cashOperationRepository.findAllBySagaIdIn(anyCollection()))
+                .thenReturn(List.of(operation("saga-1", SagaStatus.COMPLETED)));
+
+        List<CashOperation> finished = cashService.applySagaResponses(List.of(
+                new SagaResponse("saga-1", SagaStatus.COMPLETED, null),
+                new SagaResponse("saga-1", SagaStatus.FAILED, "late duplicate")));
+
+        assertThat(finished).hasSize(1);
+        verify(cashOperationRepository, never()).finishPending(anyCollection(), eq("FAILED"), any(), any());
+    }
+
+    private static CashOperation operation(String sagaId, SagaStatus status) {
+        CashOperation operation = new CashOperation();
+        operation.setSagaId(sagaId);
+        operation.setStatus(status);
+        operation.setUserLogin("user");
+        operation.setCurrency("RUB");
+        operation.setAmount(new BigDecimal("100.00"));
+        operation.setOperationType(OperationType.DEPOSIT);
+        operation.setCreatedAt(LocalDateTime.now().minusSeconds(1));
+        return operation;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bankapp.exchangegenerator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Тик курсов в NATS: все курсы, сгенерированные за один запуск планировщика.
+ * sequence растёт на единицу с каждым тиком (с начала работы генератора).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RateTick {
+    private long sequence;
+    private Instant generatedAt;
+    private List<ExchangeRateDto> rates;
+}
@@ -0,0 +1,139 @@
+package com.bankapp.exchangegenerator.messaging;
+
+import com.bankapp.exchangegenerator.dto.RateTick;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
+import io.nats.client.Dispatcher;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Публикация тиков курсов в NATS (subject exchange.rates).
+ *
+ * Публикация не ждёт подписчиков: медленный exchange-service не задерживает тики.
+ * Есть ли кому записать тик в БД, видно по heartbeat экземпляров exchange-service
+ * с подпиской queue group (subject exchange.rates.persisters): пока heartbeat
+ * приходит не реже persister-timeout, {@link #hasPersister} - true, иначе планировщик
+ * дополнительно отправляет курсы по HTTP.
+ *
+ * Соединение устанавливается в фоне и восстанавливается клиентом NATS.
+ */
+@Component
+@Slf4j
+public class RateTickPublisher implements HealthIndicator {
+
+    private final ObjectMapper objectMapper;
+    private final String subject;
+    private final String heartbeatSubject;
+    private final boolean enabled;
+    private final long persisterTimeoutNanos;
+    private final Options options;
+    private volatile Connection connection;
+    private volatile long lastHeartbeatNanos;
+    private Dispatcher heartbeatDispatcher;
+
+    public RateTickPublisher(@Value("${nats.url:nats://localhost:4222}") String natsConnectionUrl,
+                             @Value("${spring.application.name:exchange-generator-service}") String applicationName,
+                             @Value("${exchange.generator.nats.subject:exchange.rates}") String subject,
+                             @Value("${exchange.generator.nats.heartbeat-subject:exchange.rates.persisters}") String heartbeatSubject,
+                             @Value("${exchange.generator.nats.enabled:true}") boolean enabled,
+                             @Value("${exchange.generator.nats.reconnect-wait:PT1s}") Duration reconnectWait,
+                             @Value("${exchange.generator.nats.persister-timeout:PT3s}") Duration persisterTimeout,
+                             ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.subject = subject;
+        this.heartbeatSubject = heartbeatSubject;
+        this.enabled = enabled;
+        this.persisterTimeoutNanos = persisterTimeout.toNanos();
+        // До первого heartbeat записывающего экземпляра нет
+        this.lastHeartbeatNanos = System.nanoTime() - persisterTimeoutNanos - 1;
+        this.options = new Options.Builder()
+                .server(natsConnectionUrl)
+                .connectionName(applicationName + "-rates")
+                .maxReconnects(-1)
+                .reconnectWait(reconnectWait)
+                // Во время переподключения тики не копятся: устаревшие курсы никому не нужны
+                .reconnectBufferSize(0)
+                .connectionListener(this::onConnectionEvent)
+                .build();
+    }
+
+    /**
+     * Подписка на heartbeat создаётся при первом подключении; после переподключения
+     * клиент NATS восстанавливает её сам.
+     */
+    private synchronized void onConnectionEvent(Connection conn, ConnectionListener.Events event) {
+        log.info("NATS rates connection event: {}", event);
+        connection = conn;
+        if (event == ConnectionListener.Events.CONNECTED && heartbeatDispatcher == null) {
+            heartbeatDispatcher = conn.createDispatcher(message -> lastHeartbeatNanos = System.nanoTime());
+            heartbeatDispatcher.subscribe(heartbeatSubject);
+        }
+    }
+
+    @PostConstruct
+    public void connect() throws InterruptedException {
+        if (enabled) {
+            Nats.connectAsynchronously(options, true);
+        }
+    }
+
+    /**
+     * Опубликовать тик; false - NATS недоступен или выключен.
+     */
+    public boolean publish(RateTick tick) {
+        Connection current = connection;
+        if (!enabled || current == null || current.getStatus() != Connection.Status.CONNECTED) {
+            return false;
+        }
+        try {
+            current.publish(subject, objectMapper.writeValueAsBytes(tick));
+            return true;
+        } catch (JsonProcessingException | IllegalStateException e) {
+            log.warn("Failed to publish rate tick {} to NATS: {}", tick.getSequence(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Есть ли экземпляр exchange-service, записывающий тики из NATS в БД
+     * (heartbeat не старше persister-timeout).
+     */
+    public boolean hasPersister() {
+        return System.nanoTime() - lastHeartbeatNanos <= persisterTimeoutNanos;
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("nats", "disabled").build();
+        }
+        Connection current = connection;
+        Connection.Status status = current != null ? current.getStatus() : Connection.Status.DISCONNECTED;
+        // Без NATS курсы идут по HTTP, поэтому сервис остаётся UP
+        return Health.up()
+                .withDetail("subject", subject)
+                .withDetail("status", status)
+                .withDetail("persister", hasPersister() ? "present" : "absent (HTTP fallback)")
+                .build();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        Connection current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
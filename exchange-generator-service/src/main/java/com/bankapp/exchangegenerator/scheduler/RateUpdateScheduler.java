@@ -2,13 +2,19 @@ package com.bankapp.exchangegenerator.scheduler;
 
 import com.bankapp.exchangegenerator.client.ExchangeServiceClient;
 import com.bankapp.exchangegenerator.dto.ExchangeRateDto;
+import com.bankapp.exchangegenerator.dto.RateTick;
+import com.bankapp.exchangegenerator.messaging.RateTickPublisher;
 import com.bankapp.exchangegenerator.service.RateGeneratorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @RequiredArgsConstructor
@@ -17,23 +23,41 @@ public class RateUpdateScheduler {
 
     private final RateGeneratorService rateGeneratorService;
     private final ExchangeServiceClient exchangeServiceClient;
+    private final RateTickPublisher rateTickPublisher;
+    private final AtomicLong sequence = new AtomicLong();
 
     /**
-     * Обновление курсов каждую секунду
+     * Обновление курсов каждую секунду.
+     * Курсы публикуются в NATS (все экземпляры exchange-service получают их сразу),
+     * по HTTP - если NATS недоступен или нет heartbeat экземпляра, записывающего тики в БД.
+     * Публикация не ждёт exchange-service: темп тиков от него не зависит.
      */
     @Scheduled(fixedRate = 1000)
     public void updateRates() {
         try {
-            log.info("Starting exchange rates update");
-            
+            log.debug("Starting exchange rates update");
+
+            Instant generatedAt = Instant.now();
+            LocalDateTime updatedAt = LocalDateTime.ofInstant(generatedAt, ZoneId.systemDefault());
             List<ExchangeRateDto> rates = rateGeneratorService.generateRates();
+            rates.forEach(rate -> rate.setUpdatedAt(updatedAt));
+
+            RateTick tick = RateTick.builder()
+                    .sequence(sequence.incrementAndGet())
+                    .generatedAt(generatedAt)
+                    .rates(rates)
+                    .build();
+            boolean published = rateTickPublisher.publish(tick);
+            if (published && rateTickPublisher.hasPersister()) {
+                log.debug("Exchange rates published to NATS: tick {}, {} rates", tick.getSequence(), rates.size());
+                return;
+            }
+
             exchangeServiceClient.updateRates(rates);
-            
-            log.info("Exchange rates updated successfully: {} rates", rates.size());
+            log.info("Exchange rates updated over HTTP ({}): tick {}, {} rates",
+                    published ? "no persister heartbeat" : "NATS unavailable", tick.getSequence(), rates.size());
         } catch (Exception e) {
             log.error("Failed to update exchange rates: {}", e.getMessage(), e);
         }
     }
 }
-
-
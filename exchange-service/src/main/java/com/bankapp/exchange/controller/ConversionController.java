@@ -0,0 +1,102 @@
+package com.bankapp.exchange.controller;
+
+import com.bankapp.exchange.model.dto.ConversionRequest;
+import com.bankapp.exchange.model.dto.ConversionResult;
+import com.bankapp.exchange.service.ConversionService;
+import com.bankapp.exchange.service.ExchangeService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/exchange/convert")
+@Slf4j
+public class ConversionController {
+
+    static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FLUSH_EVERY = 256;
+
+    private final ConversionService conversionService;
+    private final ExchangeService exchangeService;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+
+    public ConversionController(ConversionService conversionService, ExchangeService exchangeService,
+                                ObjectMapper objectMapper) {
+        this.conversionService = conversionService;
+        this.exchangeService = exchangeService;
+        this.requestReader = objectMapper.readerFor(ConversionRequest.class);
+        this.resultWriter = objectMapper.writerFor(ConversionResult.class);
+    }
+
+    //Конвертировать сумму: /api/exchange/convert?from=USD&to=EUR&amount=100
+    @GetMapping
+    public ResponseEntity<ConversionResult> convert(@RequestParam String from,
+                                                    @RequestParam String to,
+                                                    @RequestParam BigDecimal amount) {
+        return ResponseEntity.ok(conversionService.convert(new ConversionRequest(from, to, amount)));
+    }
+
+    //Конвертировать пачку сумм по одному снимку курсов
+    @PostMapping("/batch")
+    public ResponseEntity<List<ConversionResult>> convertBatch(@RequestBody List<ConversionRequest> requests) {
+        return ResponseEntity.ok(conversionService.convertBatch(requests));
+    }
+
+    /**
+     * Потоковая конвертация: запрос и ответ - NDJSON (один JSON объект на строку).
+     * Строка ответа пишется сразу после строки запроса, весь поток в памяти не держится;
+     * каждая строка считается по текущему снимку курсов. Ответы сбрасываются клиенту,
+     * когда прочитанные строки запроса кончились (клиент ждёт ответа), и не реже
+     * чем раз в STREAM_FLUSH_EVERY строк.
+     */
+    @PostMapping(path = "/stream", consumes = NDJSON, produces = NDJSON)
+    public void convertStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        BufferedReader reader = request.getReader();
+        BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            writer.write(resultWriter.writeValueAsString(convertLine(line)));
+            writer.newLine();
+            // Пока следующие строки уже пришли, ответы копятся в буфере
+            if (++lines % STREAM_FLUSH_EVERY == 0 || !reader.ready()) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        log.debug("Converted {} amounts in stream", lines);
+    }
+
+    private ConversionResult convertLine(String line) {
+        try {
+            ConversionRequest conversionRequest = requestReader.readValue(line);
+            return conversionService.convertOrError(exchangeService.getSnapshot(), conversionRequest);
+        } catch (JsonProcessingException e) {
+            return ConversionResult.builder()
+                    .error("Malformed request: " + e.getOriginalMessage())
+                    .build();
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package com.bankapp.exchange.controller;
 
+import com.bankapp.exchange.model.RateResolution;
+import com.bankapp.exchange.model.RateSnapshot;
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
 import com.bankapp.exchange.model.entity.ExchangeRate;
+import com.bankapp.exchange.model.entity.RateBar;
+import com.bankapp.exchange.model.entity.RateHistoryEntry;
 import com.bankapp.exchange.service.ExchangeService;
+import com.bankapp.exchange.service.RateHistoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -14,21 +24,58 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class ExchangeController {
-    
+
+    // Версия (хеш курсов, одинаковый на всех экземплярах) и время снимка, из которого взят ответ
+    static final String RATES_VERSION_HEADER = "X-Rates-Version";
+    static final String RATES_TIMESTAMP_HEADER = "X-Rates-Timestamp";
+
     private final ExchangeService exchangeService;
+    private final RateHistoryService rateHistoryService;
 
-    //Получить все курсы
+    //Получить все курсы (If-None-Match с ETag прошлого ответа - 304, если курсы не менялись)
     @GetMapping("/rates")
-    public ResponseEntity<List<ExchangeRate>> getAllRates() {
-        List<ExchangeRate> rates = exchangeService.getAllRates();
-        return ResponseEntity.ok(rates);
+    public ResponseEntity<List<ExchangeRateDto>> getAllRates(WebRequest request) {
+        RateSnapshot snapshot = exchangeService.getSnapshot();
+        String etag = "\"" + snapshot.getContentTag() + "\"";
+        if (request.checkNotModified(etag)) {
+            return withSnapshotHeaders(ResponseEntity.status(HttpStatus.NOT_MODIFIED), snapshot).build();
+        }
+        return withSnapshotHeaders(ResponseEntity.ok(), snapshot).eTag(etag).body(snapshot.getRates());
+    }
+
+    //Получить все курсы вместе с версией снимка
+    @GetMapping("/rates/snapshot")
+    public ResponseEntity<RateSnapshot> getSnapshot() {
+        RateSnapshot snapshot = exchangeService.getSnapshot();
+        return withSnapshotHeaders(ResponseEntity.ok(), snapshot).body(snapshot);
     }
     
     //Получить курс конкретной валюты
     @GetMapping("/rates/{currency}")
-    public ResponseEntity<ExchangeRate> getRate(@PathVariable String currency) {
-        ExchangeRate rate = exchangeService.getRate(currency);
-        return ResponseEntity.ok(rate);
+    public ResponseEntity<ExchangeRateDto> getRate(@PathVariable String currency) {
+        RateSnapshot snapshot = exchangeService.getSnapshot();
+        return withSnapshotHeaders(ResponseEntity.ok(), snapshot).body(snapshot.getRate(currency));
+    }
+    
+    //OHLC бары курса: resolution 1s, 1m или 1h, интервал [from, to) (по умолчанию - до текущего момента)
+    @GetMapping("/rates/{currency}/history")
+    public ResponseEntity<List<RateBar>> getHistory(
+            @PathVariable String currency,
+            @RequestParam(defaultValue = "1m") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        RateResolution rateResolution = RateResolution.fromCode(resolution);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(rateResolution.getDefaultWindow());
+        return ResponseEntity.ok(rateHistoryService.getBars(currency, rateResolution, start, end));
+    }
+
+    //Курс, действовавший в указанный момент
+    @GetMapping("/rates/{currency}/at")
+    public ResponseEntity<RateHistoryEntry> getRateAt(
+            @PathVariable String currency,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        return ResponseEntity.ok(rateHistoryService.getRateAt(currency, time));
     }
     
     //Обновить курсы (для exchange-generator-service)
@@ -37,6 +84,10 @@ public class ExchangeController {
         exchangeService.updateRates(newRates);
         return ResponseEntity.ok().build();
     }
-}
-
 
+    private static ResponseEntity.BodyBuilder withSnapshotHeaders(ResponseEntity.BodyBuilder builder, RateSnapshot snapshot) {
+        return builder
+                .header(RATES_VERSION_HEADER, snapshot.getContentTag())
+                .header(RATES_TIMESTAMP_HEADER, snapshot.getCreatedAt().toString());
+    }
+}
@@ -0,0 +1,156 @@
+package com.bankapp.exchange.listener;
+
+import com.bankapp.exchange.model.dto.RateTick;
+import com.bankapp.exchange.service.ExchangeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Слушатель тиков курсов из exchange-generator-service через NATS.
+ *
+ * Две подписки на один subject:
+ * - обычная: тик получает каждый экземпляр сервиса и обновляет свой снимок в памяти;
+ * - queue group: тик получает один экземпляр из группы и записывает курсы в БД.
+ *
+ * Пока подписка queue group активна и последняя запись удалась, экземпляр раз в
+ * heartbeat-interval публикует heartbeat: без него генератор отправляет курсы по HTTP.
+ *
+ * Соединение устанавливается в фоне: без NATS сервис работает на курсах,
+ * присланных по HTTP, и сверке снимка с БД.
+ */
+@Component
+@ConditionalOnProperty(name = "application.rates.nats.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class RateTickListener {
+
+    private final ExchangeService exchangeService;
+    private final ObjectMapper objectMapper;
+    private final String subject;
+    private final String queueGroup;
+    private final String heartbeatSubject;
+    private final byte[] heartbeatPayload;
+    private final Options options;
+    private volatile Connection connection;
+    private Dispatcher snapshotDispatcher;
+    private Dispatcher persistDispatcher;
+    private long lastSequence;
+    private volatile boolean persistHealthy = true;
+
+    public RateTickListener(@Value("${nats.url:nats://localhost:4222}") String natsConnectionUrl,
+                            @Value("${spring.application.name:exchange-service}") String applicationName,
+                            @Value("${application.rates.nats.subject:exchange.rates}") String subject,
+                            @Value("${application.rates.nats.queue-group:exchange-service-persist}") String queueGroup,
+                            @Value("${application.rates.nats.heartbeat-subject:exchange.rates.persisters}") String heartbeatSubject,
+                            ExchangeService exchangeService,
+                            ObjectMapper objectMapper) {
+        this.exchangeService = exchangeService;
+        this.objectMapper = objectMapper;
+        this.subject = subject;
+        this.queueGroup = queueGroup;
+        this.heartbeatSubject = heartbeatSubject;
+        this.heartbeatPayload = applicationName.getBytes(StandardCharsets.UTF_8);
+        this.options = new Options.Builder()
+                .server(natsConnectionUrl)
+                .connectionName(applicationName + "-rates")
+                .maxReconnects(-1)
+                .connectionListener(this::onConnectionEvent)
+                .build();
+    }
+
+    @PostConstruct
+    public void connect() throws InterruptedException {
+        Nats.connectAsynchronously(options, true);
+    }
+
+    /**
+     * Подписки создаются при первом подключении; после переподключения
+     * клиент NATS восстанавливает их сам. У каждой подписки свой Dispatcher
+     * (свой поток): запись в БД не задерживает обновление снимка.
+     */
+    private synchronized void onConnectionEvent(Connection conn, ConnectionListener.Events event) {
+        log.info("NATS rates connection event: {}", event);
+        if (event == ConnectionListener.Events.CONNECTED && snapshotDispatcher == null) {
+            connection = conn;
+            snapshotDispatcher = conn.createDispatcher(this::applyToSnapshot);
+            snapshotDispatcher.subscribe(subject);
+            persistDispatcher = conn.createDispatcher(this::persist);
+            persistDispatcher.subscribe(subject, queueGroup);
+            log.info("Subscribed to rate ticks: {} (snapshot), {} queue {} (persistence)", subject, subject, queueGroup);
+        }
+    }
+
+    private void applyToSnapshot(Message message) {
+        try {
+            RateTick tick = decode(message);
+            checkSequence(tick);
+            exchangeService.applyTick(tick);
+        } catch (Exception e) {
+            log.error("Failed to apply rate tick: {}", e.getMessage(), e);
+        }
+    }
+
+    private void persist(Message message) {
+        try {
+            exchangeService.persistTick(decode(message));
+            persistHealthy = true;
+        } catch (Exception e) {
+            // Следующий тик содержит все курсы; до успешной записи heartbeat не отправляется
+            log.error("Failed to persist rate tick: {}", e.getMessage(), e);
+            persistHealthy = false;
+        }
+    }
+
+    /**
+     * Сообщить генератору, что тики из NATS записываются в БД.
+     */
+    @Scheduled(fixedRateString = "${application.rates.nats.heartbeat-interval:PT1s}")
+    public void heartbeat() {
+        Connection current = connection;
+        if (current == null || current.getStatus() != Connection.Status.CONNECTED || !persistHealthy) {
+            return;
+        }
+        try {
+            current.publish(heartbeatSubject, heartbeatPayload);
+        } catch (IllegalStateException e) {
+            log.debug("Failed to publish persister heartbeat: {}", e.getMessage());
+        }
+    }
+
+    private RateTick decode(Message message) throws IOException {
+        return objectMapper.readValue(message.getData(), RateTick.class);
+    }
+
+    /**
+     * Пропущенные тики не страшны (каждый содержит все курсы), но о них стоит знать.
+     * Меньший номер - генератор перезапущен.
+     */
+    private void checkSequence(RateTick tick) {
+        if (lastSequence != 0 && tick.getSequence() > lastSequence + 1) {
+            log.warn("Missed {} rate ticks before tick {}", tick.getSequence() - lastSequence - 1, tick.getSequence());
+        }
+        lastSequence = tick.getSequence();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        Connection current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
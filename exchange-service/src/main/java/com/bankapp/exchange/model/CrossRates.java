@@ -0,0 +1,106 @@
+package com.bankapp.exchange.model;
+
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Матрица кросс-курсов между всеми валютами снимка, через рубль:
+ * клиент продаёт from банку по buyRate(from) и покупает to по sellRate(to),
+ * rate(from, to) = buyRate(from) / sellRate(to).
+ *
+ * Курсы хранятся в long с масштабом 10^8, суммы - в минимальных единицах (10^-2):
+ * конвертация на горячем пути - одно умножение и деление long без BigDecimal.
+ * Если произведение не помещается в long, результат считается через BigDecimal
+ * с тем же (округлённым до 10^-8) курсом и даёт то же значение.
+ */
+public final class CrossRates {
+
+    public static final String BASE_CURRENCY = "RUB";
+    public static final int RATE_SCALE = 8;
+    public static final int AMOUNT_SCALE = 2;
+
+    private static final long RATE_UNIT = 100_000_000L;
+    private static final long HALF_RATE_UNIT = RATE_UNIT / 2;
+
+    private final Map<String, Integer> index;
+    private final long[] rates;
+    private final int size;
+
+    private CrossRates(Map<String, Integer> index, long[] rates) {
+        this.index = index;
+        this.rates = rates;
+        this.size = index.size();
+    }
+
+    static CrossRates of(List<ExchangeRateDto> snapshotRates) {
+        Map<String, BigDecimal> buy = new HashMap<>();
+        Map<String, BigDecimal> sell = new HashMap<>();
+        buy.put(BASE_CURRENCY, BigDecimal.ONE);
+        sell.put(BASE_CURRENCY, BigDecimal.ONE);
+        for (ExchangeRateDto rate : snapshotRates) {
+            buy.put(RateSnapshot.currencyKey(rate.getCurrencyCode()), rate.getBuyRate());
+            sell.put(RateSnapshot.currencyKey(rate.getCurrencyCode()), rate.getSellRate());
+        }
+
+        Map<String, Integer> index = new HashMap<>();
+        List<String> codes = buy.keySet().stream().sorted().toList();
+        for (int i = 0; i < codes.size(); i++) {
+            index.put(codes.get(i), i);
+        }
+
+        int n = codes.size();
+        long[] rates = new long[n * n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                rates[from * n + to] = from == to
+                        ? RATE_UNIT
+                        : buy.get(codes.get(from))
+                                .divide(sell.get(codes.get(to)), RATE_SCALE, RoundingMode.HALF_UP)
+                                .unscaledValue()
+                                .longValueExact();
+            }
+        }
+        return new CrossRates(Map.copyOf(index), rates);
+    }
+
+    /**
+     * Номер валюты в матрице; IllegalArgumentException - валюты нет в снимке.
+     */
+    public int indexOf(String currencyCode) {
+        Integer i = index.get(RateSnapshot.currencyKey(currencyCode));
+        if (i == null) {
+            throw new IllegalArgumentException("Currency not found: " + currencyCode);
+        }
+        return i;
+    }
+
+    public BigDecimal rate(int from, int to) {
+        return BigDecimal.valueOf(rates[from * size + to], RATE_SCALE);
+    }
+
+    /**
+     * Конвертировать сумму (не отрицательную) из валюты from в валюту to,
+     * результат округляется до 10^-2 (HALF_UP).
+     */
+    public BigDecimal convert(BigDecimal amount, int from, int to) {
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        long rate = rates[from * size + to];
+        try {
+            long minorUnits = amount.movePointRight(AMOUNT_SCALE).longValueExact();
+            long product = Math.multiplyExact(minorUnits, rate);
+            long result = Math.addExact(product, HALF_RATE_UNIT) / RATE_UNIT;
+            return BigDecimal.valueOf(result, AMOUNT_SCALE);
+        } catch (ArithmeticException e) {
+            // Дробная часть мельче 10^-2 или переполнение long
+            return amount.multiply(BigDecimal.valueOf(rate, RATE_SCALE))
+                    .setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+        }
+    }
+}
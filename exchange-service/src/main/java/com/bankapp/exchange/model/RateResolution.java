@@ -0,0 +1,44 @@
+package com.bankapp.exchange.model;
+
+import java.time.Duration;
+
+/**
+ * Интервал OHLC бара.
+ * defaultWindow - период, который отдаётся, если клиент не указал from.
+ */
+public enum RateResolution {
+    SECOND("1s", Duration.ofSeconds(1), Duration.ofMinutes(5)),
+    MINUTE("1m", Duration.ofMinutes(1), Duration.ofHours(3)),
+    HOUR("1h", Duration.ofHours(1), Duration.ofDays(7));
+
+    private final String code;
+    private final Duration step;
+    private final Duration defaultWindow;
+
+    RateResolution(String code, Duration step, Duration defaultWindow) {
+        this.code = code;
+        this.step = step;
+        this.defaultWindow = defaultWindow;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getStep() {
+        return step;
+    }
+
+    public Duration getDefaultWindow() {
+        return defaultWindow;
+    }
+
+    public static RateResolution fromCode(String code) {
+        for (RateResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported resolution: " + code + " (expected 1s, 1m or 1h)");
+    }
+}
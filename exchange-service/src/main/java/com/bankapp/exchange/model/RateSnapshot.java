@@ -0,0 +1,146 @@
+package com.bankapp.exchange.model;
+
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемый снимок всех курсов.
+ *
+ * version растёт на единицу при каждой замене снимка, createdAt - время замены.
+ * version - счётчик экземпляра (после перезапуска начинается с нуля, у реплик свой),
+ * поэтому снимки между собой клиент сравнивает по contentTag - хешу самих курсов:
+ * одинаковые курсы на любом экземпляре дают одинаковый contentTag.
+ * Матрица кросс-курсов {@link CrossRates} строится вместе со снимком и заменяется с ним.
+ */
+@Value
+public class RateSnapshot {
+
+    public static final RateSnapshot EMPTY = new RateSnapshot(0, Instant.EPOCH, Map.of());
+
+    long version;
+    Instant createdAt;
+    String contentTag;
+    List<ExchangeRateDto> rates;
+    @JsonIgnore
+    Map<String, ExchangeRateDto> byCurrency;
+    @JsonIgnore
+    CrossRates crossRates;
+
+    private RateSnapshot(long version, Instant createdAt, Map<String, ExchangeRateDto> byCurrency) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.byCurrency = Collections.unmodifiableMap(new LinkedHashMap<>(byCurrency));
+        this.rates = List.copyOf(this.byCurrency.values());
+        this.contentTag = contentTag(rates);
+        this.crossRates = CrossRates.of(rates);
+    }
+
+    public Optional<ExchangeRateDto> find(String currencyCode) {
+        return Optional.ofNullable(byCurrency.get(currencyKey(currencyCode)));
+    }
+
+    public ExchangeRateDto getRate(String currencyCode) {
+        return find(currencyCode)
+                .orElseThrow(() -> new IllegalArgumentException("Currency not found: " + currencyCode));
+    }
+
+    /**
+     * Совпадает ли курс валюты с курсом в снимке (без учёта масштаба BigDecimal).
+     */
+    public boolean hasRate(String currencyCode, BigDecimal buyRate, BigDecimal sellRate) {
+        ExchangeRateDto rate = byCurrency.get(currencyKey(currencyCode));
+        return rate != null
+                && rate.getBuyRate().compareTo(buyRate) == 0
+                && rate.getSellRate().compareTo(sellRate) == 0;
+    }
+
+    /**
+     * Снимок с учётом изменённых курсов; курс заменяется, только если он не старше
+     * уже известного (поздно прочитанная из БД строка не откатывает свежий курс)
+     * и отличается от него. Если ничего не изменилось - возвращается этот же снимок.
+     *
+     * updatedAt у тиков и у строк БД - время генерации тика по часам генератора
+     * (upsert записывает его, а не NOW()), поэтому сравнение не зависит от часов БД.
+     * Курс без updatedAt не применяется: его не с чем упорядочить.
+     */
+    public RateSnapshot merge(Collection<ExchangeRateDto> changed) {
+        Map<String, ExchangeRateDto> merged = new TreeMap<>(byCurrency);
+        boolean modified = false;
+        for (ExchangeRateDto candidate : changed) {
+            String code = currencyKey(candidate.getCurrencyCode());
+            ExchangeRateDto rate = code.equals(candidate.getCurrencyCode())
+                    ? candidate
+                    : candidate.toBuilder().currencyCode(code).build();
+            ExchangeRateDto current = merged.get(code);
+            if (current == null ? rate.getUpdatedAt() != null : isNewer(rate, current)) {
+                merged.put(code, rate);
+                modified = true;
+            }
+        }
+        return modified ? new RateSnapshot(version + 1, Instant.now(), merged) : this;
+    }
+
+    /**
+     * Код валюты в снимке и матрице кросс-курсов: все поиски и ключи - в верхнем регистре.
+     */
+    static String currencyKey(String currencyCode) {
+        return currencyCode.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Хеш курсов (валюта, покупка, продажа, время) без учёта масштаба BigDecimal.
+     */
+    private static String contentTag(List<ExchangeRateDto> rates) {
+        StringBuilder content = new StringBuilder();
+        rates.stream()
+                .sorted(Comparator.comparing(ExchangeRateDto::getCurrencyCode))
+                .forEach(rate -> content.append(rate.getCurrencyCode()).append(':')
+                        .append(plain(rate.getBuyRate())).append(':')
+                        .append(plain(rate.getSellRate())).append(':')
+                        .append(rate.getUpdatedAt()).append(';'));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : "";
+    }
+
+    private static boolean isNewer(ExchangeRateDto candidate, ExchangeRateDto current) {
+        // Тот же курс из другого источника (тик, БД) снимок не меняет
+        if (current.getBuyRate().compareTo(candidate.getBuyRate()) == 0
+                && current.getSellRate().compareTo(candidate.getSellRate()) == 0
+                && (current.getId() != null || candidate.getId() == null)) {
+            return false;
+        }
+        if (candidate.getUpdatedAt() == null) {
+            return false;
+        }
+        if (current.getUpdatedAt() == null) {
+            return true;
+        }
+        return !candidate.getUpdatedAt().isBefore(current.getUpdatedAt());
+    }
+}
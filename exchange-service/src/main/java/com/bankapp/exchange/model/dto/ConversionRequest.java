@@ -0,0 +1,19 @@
+package com.bankapp.exchange.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Запрос конвертации: amount в валюте from перевести в валюту to.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversionRequest {
+    private String from;
+    private String to;
+    private BigDecimal amount;
+}
@@ -0,0 +1,24 @@
+package com.bankapp.exchange.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат конвертации; rate - применённый кросс-курс, version - версия снимка курсов.
+ * В пакетном режиме ошибка одного запроса возвращается в error, остальные считаются.
+ */
+@Value
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConversionResult {
+    String from;
+    String to;
+    BigDecimal amount;
+    BigDecimal result;
+    BigDecimal rate;
+    Long version;
+    String error;
+}
@@ -0,0 +1,34 @@
+package com.bankapp.exchange.model.dto;
+
+import com.bankapp.exchange.model.entity.ExchangeRate;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемая копия курса для снимка {@link com.bankapp.exchange.model.RateSnapshot}.
+ * JSON совпадает с сущностью {@link ExchangeRate}.
+ */
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class ExchangeRateDto {
+    Long id;
+    String currencyCode;
+    BigDecimal buyRate;
+    BigDecimal sellRate;
+    LocalDateTime updatedAt;
+
+    public static ExchangeRateDto from(ExchangeRate rate) {
+        return ExchangeRateDto.builder()
+                .id(rate.getId())
+                .currencyCode(rate.getCurrencyCode())
+                .buyRate(rate.getBuyRate())
+                .sellRate(rate.getSellRate())
+                .updatedAt(rate.getUpdatedAt())
+                .build();
+    }
+}
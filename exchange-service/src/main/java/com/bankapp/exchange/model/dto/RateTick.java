@@ -0,0 +1,20 @@
+package com.bankapp.exchange.model.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Тик курсов от exchange-generator-service (NATS subject exchange.rates).
+ */
+@Value
+@Builder
+@Jacksonized
+public class RateTick {
+    long sequence;
+    Instant generatedAt;
+    List<ExchangeRateDto> rates;
+}
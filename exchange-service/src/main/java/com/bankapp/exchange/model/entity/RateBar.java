@@ -0,0 +1,75 @@
+package com.bankapp.exchange.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * OHLC бар курсов покупки и продажи за интервал resolution, начиная с bucketStart.
+ * Бары 1m и 1h хранятся в rate_bars, бары 1s собираются из rate_history при запросе.
+ */
+@Entity
+@Table(name = "rate_bars", schema = "exchange")
+@IdClass(RateBar.Key.class)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateBar {
+
+    @Id
+    @Column(name = "currency_code", nullable = false, length = 3)
+    private String currencyCode;
+
+    @Id
+    @Column(name = "resolution", nullable = false, length = 2)
+    private String resolution;
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "buy_open", nullable = false, precision = 19, scale = 4)
+    private BigDecimal buyOpen;
+
+    @Column(name = "buy_high", nullable = false, precision = 19, scale = 4)
+    private BigDecimal buyHigh;
+
+    @Column(name = "buy_low", nullable = false, precision = 19, scale = 4)
+    private BigDecimal buyLow;
+
+    @Column(name = "buy_close", nullable = false, precision = 19, scale = 4)
+    private BigDecimal buyClose;
+
+    @Column(name = "sell_open", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sellOpen;
+
+    @Column(name = "sell_high", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sellHigh;
+
+    @Column(name = "sell_low", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sellLow;
+
+    @Column(name = "sell_close", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sellClose;
+
+    @Column(name = "first_at", nullable = false)
+    private LocalDateTime firstAt;
+
+    @Column(name = "last_at", nullable = false)
+    private LocalDateTime lastAt;
+
+    @Column(name = "tick_count", nullable = false)
+    private int tickCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String currencyCode;
+        private String resolution;
+        private LocalDateTime bucketStart;
+    }
+}
@@ -0,0 +1,43 @@
+package com.bankapp.exchange.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Изменение курса валюты (секционированная по дням таблица rate_history).
+ * Строки добавляет только upsert тика, приложение их не изменяет.
+ */
+@Entity
+@Table(name = "rate_history", schema = "exchange")
+@IdClass(RateHistoryEntry.Key.class)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateHistoryEntry {
+
+    @Id
+    @Column(name = "currency_code", nullable = false, length = 3)
+    private String currencyCode;
+
+    @Id
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+
+    @Column(name = "buy_rate", nullable = false, precision = 19, scale = 4)
+    private BigDecimal buyRate;
+
+    @Column(name = "sell_rate", nullable = false, precision = 19, scale = 4)
+    private BigDecimal sellRate;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String currencyCode;
+        private LocalDateTime recordedAt;
+    }
+}
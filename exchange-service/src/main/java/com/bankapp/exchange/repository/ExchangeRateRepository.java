@@ -2,8 +2,13 @@ package com.bankapp.exchange.repository;
 
 import com.bankapp.exchange.model.entity.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,6 +16,75 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long
     
     Optional<ExchangeRate> findByCurrencyCode(String currencyCode);
 
-}
-
+    /**
+     * Записать курсы одним запросом (INSERT ... ON CONFLICT по currency_code).
+     * Значения передаются массивами (text[], numeric[], timestamp[]) одинаковой длины и порядка.
+     * Строка с теми же курсами или с более поздним updated_at не перезаписывается;
+     * возвращаются только добавленные и изменённые строки.
+     *
+     * updated_at - время генерации курса по часам генератора, а не NOW(): снимки
+     * экземпляров сравнивают его с updated_at тиков из NATS.
+     *
+     * Тем же запросом изменённые курсы добавляются в историю (rate_history)
+     * и в OHLC бары 1m и 1h (rate_bars): бар обновляется инкрементально, без
+     * чтения истории. open/close выбираются по времени, поэтому порядок
+     * записи тиков разными экземплярами сервиса не важен.
+     */
+    @Query(value = """
+            WITH upserted AS (
+                INSERT INTO exchange.exchange_rates (currency_code, buy_rate, sell_rate, updated_at)
+                SELECT r.currency_code, r.buy_rate, r.sell_rate, r.updated_at
+                FROM unnest(
+                        CAST(:currencyCodes AS TEXT[]),
+                        CAST(:buyRates AS NUMERIC[]),
+                        CAST(:sellRates AS NUMERIC[]),
+                        CAST(:updatedAts AS TIMESTAMP[])
+                     ) AS r(currency_code, buy_rate, sell_rate, updated_at)
+                ON CONFLICT (currency_code) DO UPDATE
+                SET buy_rate = EXCLUDED.buy_rate,
+                    sell_rate = EXCLUDED.sell_rate,
+                    updated_at = EXCLUDED.updated_at
+                WHERE (exchange_rates.buy_rate, exchange_rates.sell_rate)
+                      IS DISTINCT FROM (EXCLUDED.buy_rate, EXCLUDED.sell_rate)
+                  AND EXCLUDED.updated_at >= exchange_rates.updated_at
+                RETURNING *
+            ), history AS (
+                INSERT INTO exchange.rate_history (currency_code, recorded_at, buy_rate, sell_rate)
+                SELECT currency_code, updated_at, buy_rate, sell_rate FROM upserted
+                ON CONFLICT DO NOTHING
+            ), bars AS (
+                INSERT INTO exchange.rate_bars (currency_code, resolution, bucket_start,
+                        buy_open, buy_high, buy_low, buy_close,
+                        sell_open, sell_high, sell_low, sell_close,
+                        first_at, last_at, tick_count)
+                SELECT u.currency_code, b.resolution, date_trunc(b.unit, u.updated_at),
+                       u.buy_rate, u.buy_rate, u.buy_rate, u.buy_rate,
+                       u.sell_rate, u.sell_rate, u.sell_rate, u.sell_rate,
+                       u.updated_at, u.updated_at, 1
+                FROM upserted u
+                CROSS JOIN (VALUES ('1m', 'minute'), ('1h', 'hour')) AS b(resolution, unit)
+                ON CONFLICT (currency_code, resolution, bucket_start) DO UPDATE
+                SET buy_open = CASE WHEN EXCLUDED.first_at < rate_bars.first_at
+                                    THEN EXCLUDED.buy_open ELSE rate_bars.buy_open END,
+                    buy_high = GREATEST(rate_bars.buy_high, EXCLUDED.buy_high),
+                    buy_low = LEAST(rate_bars.buy_low, EXCLUDED.buy_low),
+                    buy_close = CASE WHEN EXCLUDED.last_at >= rate_bars.last_at
+                                     THEN EXCLUDED.buy_close ELSE rate_bars.buy_close END,
+                    sell_open = CASE WHEN EXCLUDED.first_at < rate_bars.first_at
+                                     THEN EXCLUDED.sell_open ELSE rate_bars.sell_open END,
+                    sell_high = GREATEST(rate_bars.sell_high, EXCLUDED.sell_high),
+                    sell_low = LEAST(rate_bars.sell_low, EXCLUDED.sell_low),
+                    sell_close = CASE WHEN EXCLUDED.last_at >= rate_bars.last_at
+                                      THEN EXCLUDED.sell_close ELSE rate_bars.sell_close END,
+                    first_at = LEAST(rate_bars.first_at, EXCLUDED.first_at),
+                    last_at = GREATEST(rate_bars.last_at, EXCLUDED.last_at),
+                    tick_count = rate_bars.tick_count + 1
+            )
+            SELECT * FROM upserted
+            """, nativeQuery = true)
+    List<ExchangeRate> upsertRates(@Param("currencyCodes") String[] currencyCodes,
+                                   @Param("buyRates") BigDecimal[] buyRates,
+                                   @Param("sellRates") BigDecimal[] sellRates,
+                                   @Param("updatedAts") LocalDateTime[] updatedAts);
 
+}
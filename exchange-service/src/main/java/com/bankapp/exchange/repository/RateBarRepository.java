@@ -0,0 +1,57 @@
+package com.bankapp.exchange.repository;
+
+import com.bankapp.exchange.model.entity.RateBar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RateBarRepository extends JpaRepository<RateBar, RateBar.Key> {
+
+    /**
+     * Сохранённые бары (1m, 1h) в интервале [from, to).
+     */
+    @Query("""
+            SELECT b FROM RateBar b
+            WHERE b.currencyCode = :currencyCode AND b.resolution = :resolution
+              AND b.bucketStart >= :from AND b.bucketStart < :to
+            ORDER BY b.bucketStart
+            """)
+    List<RateBar> findBars(@Param("currencyCode") String currencyCode,
+                           @Param("resolution") String resolution,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
+
+    /**
+     * Бары 1s из истории в интервале [from, to). При тике раз в секунду это
+     * сами строки истории; сканируются только секции дней интервала.
+     */
+    @Query(value = """
+            SELECT currency_code,
+                   '1s' AS resolution,
+                   date_trunc('second', recorded_at) AS bucket_start,
+                   (array_agg(buy_rate ORDER BY recorded_at))[1] AS buy_open,
+                   MAX(buy_rate) AS buy_high,
+                   MIN(buy_rate) AS buy_low,
+                   (array_agg(buy_rate ORDER BY recorded_at DESC))[1] AS buy_close,
+                   (array_agg(sell_rate ORDER BY recorded_at))[1] AS sell_open,
+                   MAX(sell_rate) AS sell_high,
+                   MIN(sell_rate) AS sell_low,
+                   (array_agg(sell_rate ORDER BY recorded_at DESC))[1] AS sell_close,
+                   MIN(recorded_at) AS first_at,
+                   MAX(recorded_at) AS last_at,
+                   COUNT(*) AS tick_count
+            FROM exchange.rate_history
+            WHERE currency_code = :currencyCode
+              AND recorded_at >= :from AND recorded_at < :to
+            GROUP BY currency_code, date_trunc('second', recorded_at)
+            ORDER BY bucket_start
+            """, nativeQuery = true)
+    List<RateBar> findSecondBars(@Param("currencyCode") String currencyCode,
+                                 @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,33 @@
+package com.bankapp.exchange.repository;
+
+import com.bankapp.exchange.model.entity.RateHistoryEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RateHistoryRepository extends JpaRepository<RateHistoryEntry, RateHistoryEntry.Key> {
+
+    /**
+     * Курс, действовавший в момент time (последнее изменение не позже time).
+     */
+    Optional<RateHistoryEntry> findFirstByCurrencyCodeAndRecordedAtLessThanEqualOrderByRecordedAtDesc(
+            String currencyCode, LocalDateTime time);
+
+    /**
+     * Создать секцию истории на день; false - секция уже есть.
+     */
+    @Query(value = "SELECT exchange.ensure_rate_history_partition(:day)", nativeQuery = true)
+    boolean ensurePartition(@Param("day") LocalDate day);
+
+    /**
+     * Удалить секции истории за дни раньше before; возвращает число удалённых секций.
+     */
+    @Query(value = "SELECT exchange.drop_rate_history_partitions(:before)", nativeQuery = true)
+    int dropPartitionsBefore(@Param("before") LocalDate before);
+}
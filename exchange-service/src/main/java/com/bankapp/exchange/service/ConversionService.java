@@ -0,0 +1,70 @@
+package com.bankapp.exchange.service;
+
+import com.bankapp.exchange.model.CrossRates;
+import com.bankapp.exchange.model.RateSnapshot;
+import com.bankapp.exchange.model.dto.ConversionRequest;
+import com.bankapp.exchange.model.dto.ConversionResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Конвертация сумм между валютами по матрице кросс-курсов текущего снимка
+ * ({@link CrossRates}), без обращения к БД.
+ *
+ * Пакет конвертируется по одному снимку: все результаты согласованы между собой.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversionService {
+
+    private final ExchangeService exchangeService;
+
+    public ConversionResult convert(ConversionRequest request) {
+        return convert(exchangeService.getSnapshot(), request);
+    }
+
+    /**
+     * Конвертировать пачку; ошибка в одном запросе не прерывает остальные.
+     */
+    public List<ConversionResult> convertBatch(List<ConversionRequest> requests) {
+        RateSnapshot snapshot = exchangeService.getSnapshot();
+        List<ConversionResult> results = new ArrayList<>(requests.size());
+        for (ConversionRequest request : requests) {
+            results.add(convertOrError(snapshot, request));
+        }
+        return results;
+    }
+
+    public ConversionResult convertOrError(RateSnapshot snapshot, ConversionRequest request) {
+        try {
+            return convert(snapshot, request);
+        } catch (IllegalArgumentException e) {
+            return ConversionResult.builder()
+                    .from(request.getFrom())
+                    .to(request.getTo())
+                    .amount(request.getAmount())
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
+
+    private ConversionResult convert(RateSnapshot snapshot, ConversionRequest request) {
+        if (request.getFrom() == null || request.getTo() == null || request.getAmount() == null) {
+            throw new IllegalArgumentException("from, to and amount are required");
+        }
+        CrossRates crossRates = snapshot.getCrossRates();
+        int from = crossRates.indexOf(request.getFrom());
+        int to = crossRates.indexOf(request.getTo());
+        return ConversionResult.builder()
+                .from(request.getFrom().toUpperCase())
+                .to(request.getTo().toUpperCase())
+                .amount(request.getAmount())
+                .result(crossRates.convert(request.getAmount(), from, to))
+                .rate(crossRates.rate(from, to))
+                .version(snapshot.getVersion())
+                .build();
+    }
+}
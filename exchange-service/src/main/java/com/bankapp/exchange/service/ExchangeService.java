@@ -1,49 +1,157 @@
 package com.bankapp.exchange.service;
 
+import com.bankapp.exchange.model.RateSnapshot;
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import com.bankapp.exchange.model.dto.RateTick;
 import com.bankapp.exchange.model.entity.ExchangeRate;
 import com.bankapp.exchange.repository.ExchangeRateRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Курсы валют.
+ *
+ * Чтение идёт из неизменяемого снимка {@link RateSnapshot} в памяти, без обращения к БД:
+ * курсы меняются раз в секунду (exchange-generator-service), а читаются намного чаще.
+ * Снимок загружается при старте и заменяется атомарно после коммита updateRates.
+ * Запись - один upsert на тик, только для курсов, отличающихся от снимка.
+ *
+ * Основной путь курсов - тики генератора через NATS ({@link com.bankapp.exchange.listener.RateTickListener}):
+ * тик применяется к снимку каждого экземпляра, а в БД его пишет один из них.
+ * HTTP запрос генератора (запасной путь) попадает только в один экземпляр, поэтому
+ * снимок дополнительно сверяется с БД (application.rates.snapshot.refresh-interval).
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExchangeService {
     
     private final ExchangeRateRepository exchangeRateRepository;
+    private final AtomicReference<RateSnapshot> snapshot = new AtomicReference<>(RateSnapshot.EMPTY);
 
-    @Transactional(readOnly = true)
-    public List<ExchangeRate> getAllRates() {
-        return exchangeRateRepository.findAll();
+    @PostConstruct
+    public void loadSnapshot() {
+        refreshSnapshot();
+        log.info("Exchange rate snapshot loaded: {} rates, version {}",
+                snapshot.get().getRates().size(), snapshot.get().getVersion());
     }
 
-    @Transactional(readOnly = true)
-    public ExchangeRate getRate(String currencyCode) {
-        return exchangeRateRepository.findByCurrencyCode(currencyCode.toUpperCase())
-                .orElseThrow(() -> new IllegalArgumentException("Currency not found: " + currencyCode));
+    public RateSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
+    /**
+     * Перечитать курсы из БД (изменения, записанные другими экземплярами сервиса).
+     */
+    @Scheduled(fixedDelayString = "${application.rates.snapshot.refresh-interval:PT5s}",
+            initialDelayString = "${application.rates.snapshot.refresh-interval:PT5s}")
+    public void refreshSnapshot() {
+        List<ExchangeRateDto> rates = exchangeRateRepository.findAll().stream()
+                .map(ExchangeRateDto::from)
+                .toList();
+        publish(rates);
+    }
+
+    /**
+     * Записать новые курсы одним запросом. Курсы, совпадающие со снимком,
+     * не отправляются в БД; если не изменилось ничего - запроса нет.
+     * Курсы без updatedAt (времени генерации) пропускаются.
+     */
     @Transactional
     public void updateRates(List<ExchangeRate> newRates) {
-        log.info("Updating {} exchange rates", newRates.size());
-        
+        RateSnapshot current = snapshot.get();
+        // Сортировка по коду - одинаковый порядок блокировок строк у параллельных запросов
+        Map<String, ExchangeRate> changed = new TreeMap<>();
         for (ExchangeRate newRate : newRates) {
-            ExchangeRate existingRate = exchangeRateRepository.findByCurrencyCode(newRate.getCurrencyCode())
-                    .orElse(new ExchangeRate());
-            
-            existingRate.setCurrencyCode(newRate.getCurrencyCode());
-            existingRate.setBuyRate(newRate.getBuyRate());
-            existingRate.setSellRate(newRate.getSellRate());
-            
-            exchangeRateRepository.save(existingRate);
-            log.debug("Updated rate for {}: buy={}, sell={}", 
-                    newRate.getCurrencyCode(), newRate.getBuyRate(), newRate.getSellRate());
+            if (newRate.getUpdatedAt() == null) {
+                log.warn("Exchange rate {} without updatedAt ignored", newRate.getCurrencyCode());
+                continue;
+            }
+            if (!current.hasRate(newRate.getCurrencyCode(), newRate.getBuyRate(), newRate.getSellRate())) {
+                changed.put(newRate.getCurrencyCode(), newRate);
+            }
         }
+        if (changed.isEmpty()) {
+            log.debug("Exchange rates unchanged ({} received)", newRates.size());
+            return;
+        }
+        upsert(changed.values(), newRates.size());
     }
-}
 
+    /**
+     * Применить тик из NATS к снимку этого экземпляра (без записи в БД).
+     */
+    public void applyTick(RateTick tick) {
+        RateSnapshot current = snapshot.get();
+        publish(tick.getRates().stream()
+                .map(rate -> rate.toBuilder()
+                        .id(current.find(rate.getCurrencyCode()).map(ExchangeRateDto::getId).orElse(null))
+                        .build())
+                .toList());
+    }
+
+    /**
+     * Записать тик из NATS в БД (тик получает один экземпляр из queue group).
+     * Снимок здесь не фильтр: обычная подписка могла уже применить этот тик,
+     * неизменившиеся строки отсекает сам upsert.
+     */
+    @Transactional
+    public void persistTick(RateTick tick) {
+        Map<String, ExchangeRate> rates = new TreeMap<>();
+        for (ExchangeRateDto rate : tick.getRates()) {
+            if (rate.getUpdatedAt() == null) {
+                log.warn("Rate {} of tick {} without updatedAt ignored", rate.getCurrencyCode(), tick.getSequence());
+                continue;
+            }
+            rates.put(rate.getCurrencyCode(), ExchangeRate.builder()
+                    .currencyCode(rate.getCurrencyCode())
+                    .buyRate(rate.getBuyRate())
+                    .sellRate(rate.getSellRate())
+                    .updatedAt(rate.getUpdatedAt())
+                    .build());
+        }
+        if (!rates.isEmpty()) {
+            upsert(rates.values(), tick.getRates().size());
+        }
+    }
+
+    private void upsert(Collection<ExchangeRate> rates, int received) {
+        List<ExchangeRate> saved = exchangeRateRepository.upsertRates(
+                rates.stream().map(ExchangeRate::getCurrencyCode).toArray(String[]::new),
+                rates.stream().map(ExchangeRate::getBuyRate).toArray(BigDecimal[]::new),
+                rates.stream().map(ExchangeRate::getSellRate).toArray(BigDecimal[]::new),
+                rates.stream().map(ExchangeRate::getUpdatedAt).toArray(LocalDateTime[]::new));
+        log.info("Updated {} of {} exchange rates", saved.size(), received);
+
+        // Новые курсы видны читателям только после коммита
+        List<ExchangeRateDto> published = saved.stream().map(ExchangeRateDto::from).toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(published);
+            }
+        });
+    }
 
+    private void publish(List<ExchangeRateDto> changed) {
+        RateSnapshot previous = snapshot.get();
+        RateSnapshot current = snapshot.updateAndGet(s -> s.merge(changed));
+        if (current != previous) {
+            log.debug("Exchange rate snapshot replaced: version {}", current.getVersion());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.bankapp.exchange.service;
+
+import com.bankapp.exchange.model.RateResolution;
+import com.bankapp.exchange.model.entity.RateBar;
+import com.bankapp.exchange.model.entity.RateHistoryEntry;
+import com.bankapp.exchange.repository.RateBarRepository;
+import com.bankapp.exchange.repository.RateHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+
+/**
+ * История курсов и OHLC бары.
+ *
+ * История и бары пишутся тем же запросом, что и курсы
+ * ({@link com.bankapp.exchange.repository.ExchangeRateRepository#upsertRates}),
+ * здесь - чтение и обслуживание секций: секции на сегодня и partitions-ahead дней
+ * вперёд создаются заранее, секции старше retention удаляются целиком.
+ */
+@Service
+@Slf4j
+public class RateHistoryService {
+
+    private final RateHistoryRepository rateHistoryRepository;
+    private final RateBarRepository rateBarRepository;
+    private final Period retention;
+    private final int partitionsAhead;
+    private final int maxBars;
+
+    public RateHistoryService(RateHistoryRepository rateHistoryRepository,
+                              RateBarRepository rateBarRepository,
+                              @Value("${application.rates.history.retention:P30D}") Period retention,
+                              @Value("${application.rates.history.partitions-ahead:2}") int partitionsAhead,
+                              @Value("${application.rates.history.max-bars:10000}") int maxBars) {
+        this.rateHistoryRepository = rateHistoryRepository;
+        this.rateBarRepository = rateBarRepository;
+        this.retention = retention;
+        this.partitionsAhead = partitionsAhead;
+        this.maxBars = maxBars;
+    }
+
+    /**
+     * OHLC бары валюты в интервале [from, to); бары без изменений курса не возвращаются.
+     */
+    @Transactional(readOnly = true)
+    public List<RateBar> getBars(String currencyCode, RateResolution resolution,
+                                 LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        long bars = Duration.between(from, to).dividedBy(resolution.getStep());
+        if (bars > maxBars) {
+            throw new IllegalArgumentException("Too many " + resolution.getCode() + " bars requested: "
+                    + bars + " (max " + maxBars + ")");
+        }
+
+        String code = currencyCode.toUpperCase();
+        if (resolution == RateResolution.SECOND) {
+            return rateBarRepository.findSecondBars(code, from, to);
+        }
+        return rateBarRepository.findBars(code, resolution.getCode(), from, to);
+    }
+
+    /**
+     * Курс, действовавший в момент time (проверка курса, записанного в операции).
+     */
+    @Transactional(readOnly = true)
+    public RateHistoryEntry getRateAt(String currencyCode, LocalDateTime time) {
+        return rateHistoryRepository
+                .findFirstByCurrencyCodeAndRecordedAtLessThanEqualOrderByRecordedAtDesc(currencyCode.toUpperCase(), time)
+                .orElseThrow(() -> new IllegalArgumentException("No rate history for " + currencyCode + " at " + time));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareOnStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * Создать секции на ближайшие дни и удалить устаревшие.
+     * Выполняется всеми экземплярами; повторное создание и удаление безопасны.
+     */
+    @Scheduled(fixedDelayString = "${application.rates.history.maintenance-interval:PT1h}",
+            initialDelayString = "${application.rates.history.maintenance-interval:PT1h}")
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now();
+        try {
+            for (int day = 0; day <= partitionsAhead; day++) {
+                if (rateHistoryRepository.ensurePartition(today.plusDays(day))) {
+                    log.info("Created rate history partition for {}", today.plusDays(day));
+                }
+            }
+            int dropped = rateHistoryRepository.dropPartitionsBefore(today.minus(retention));
+            if (dropped > 0) {
+                log.info("Dropped {} rate history partitions older than {}", dropped, retention);
+            }
+        } catch (Exception e) {
+            // Параллельное обслуживание другим экземпляром; следующий запуск повторит
+            log.warn("Rate history partition maintenance failed: {}", e.getMessage());
+        }
+    }
+}
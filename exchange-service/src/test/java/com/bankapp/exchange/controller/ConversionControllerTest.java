@@ -0,0 +1,120 @@
+package com.bankapp.exchange.controller;
+
+import com.bankapp.exchange.model.RateSnapshot;
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import com.bankapp.exchange.service.ConversionService;
+import com.bankapp.exchange.service.ExchangeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ConversionController#convertStream}: ответ на строку уходит клиенту до чтения следующей.
+ */
+class ConversionControllerTest {
+
+    @Test
+    void flushesAnswerBeforeWaitingForNextLine() throws Exception {
+        ExchangeService exchangeService = mock(ExchangeService.class);
+        when(exchangeService.getSnapshot()).thenReturn(RateSnapshot.EMPTY.merge(List.of(ExchangeRateDto.builder()
+                .currencyCode("USD")
+                .buyRate(new BigDecimal("90.00"))
+                .sellRate(new BigDecimal("100.00"))
+                .updatedAt(LocalDateTime.of(2026, 10, 17, 12, 0, 0))
+                .build())));
+        ConversionController controller = new ConversionController(
+                new ConversionService(exchangeService), exchangeService, new ObjectMapper());
+
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        List<String> sentBeforeSecondLine = new ArrayList<>();
+        InteractiveReader client = new InteractiveReader(
+                () -> sentBeforeSecondLine.add(sent.toString(StandardCharsets.UTF_8)),
+                "{\"from\":\"USD\",\"to\":\"RUB\",\"amount\":1}\n",
+                "{\"from\":\"RUB\",\"to\":\"USD\",\"amount\":100}\n");
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getReader()).thenReturn(new BufferedReader(client));
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new CapturingOutputStream(sent));
+
+        controller.convertStream(request, response);
+
+        assertThat(sentBeforeSecondLine).hasSize(1);
+        assertThat(sentBeforeSecondLine.get(0).lines()).hasSize(1);
+        assertThat(sent.toString(StandardCharsets.UTF_8).lines()).hasSize(2);
+    }
+
+    /**
+     * Клиент, который отправляет следующую строку только после вызова beforeNextChunk.
+     */
+    private static final class InteractiveReader extends Reader {
+
+        private final Runnable beforeNextChunk;
+        private final Deque<String> chunks;
+        private boolean started;
+
+        InteractiveReader(Runnable beforeNextChunk, String... chunks) {
+            this.beforeNextChunk = beforeNextChunk;
+            this.chunks = new ArrayDeque<>(List.of(chunks));
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (chunks.isEmpty()) {
+                return -1;
+            }
+            if (started) {
+                beforeNextChunk.run();
+            }
+            started = true;
+            String chunk = chunks.poll();
+            chunk.getChars(0, chunk.length(), buffer, offset);
+            return chunk.length();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class CapturingOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream target;
+
+        CapturingOutputStream(ByteArrayOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) {
+            target.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
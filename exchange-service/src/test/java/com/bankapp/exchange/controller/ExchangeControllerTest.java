@@ -0,0 +1,113 @@
+package com.bankapp.exchange.controller;
+
+import com.bankapp.exchange.model.RateSnapshot;
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import com.bankapp.exchange.service.ExchangeService;
+import com.bankapp.exchange.service.RateHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@link ExchangeController#getAllRates}: ETag - хеш курсов, а не локальная версия снимка.
+ */
+class ExchangeControllerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 17, 12, 0, 0);
+
+    private ExchangeService exchangeService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        exchangeService = mock(ExchangeService.class);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ExchangeController(exchangeService, mock(RateHistoryService.class)))
+                .build();
+    }
+
+    @Test
+    void unchangedSnapshotKeepsEtagAndAnswersNotModified() throws Exception {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate("90.00", T0)));
+        when(exchangeService.getSnapshot()).thenReturn(snapshot);
+        String etag = etagOf(snapshot);
+
+        // Повтор того же курса снимок не меняет
+        when(exchangeService.getSnapshot()).thenReturn(snapshot.merge(List.of(rate("90.0", T0.plusSeconds(1)))));
+
+        assertThat(etagOf(exchangeService.getSnapshot())).isEqualTo(etag);
+        mockMvc.perform(get("/api/exchange/rates").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ExchangeController.RATES_VERSION_HEADER, snapshot.getContentTag()));
+    }
+
+    @Test
+    void etagDoesNotDependOnLocalVersion() throws Exception {
+        // Тот же набор курсов на другом экземпляре (или после перезапуска) с другой версией
+        RateSnapshot here = RateSnapshot.EMPTY.merge(List.of(rate("90.00", T0)));
+        RateSnapshot elsewhere = RateSnapshot.EMPTY
+                .merge(List.of(rate("89.00", T0.minusSeconds(1))))
+                .merge(List.of(rate("90.00", T0)));
+
+        assertThat(elsewhere.getVersion()).isNotEqualTo(here.getVersion());
+        assertThat(etagOf(elsewhere)).isEqualTo(etagOf(here));
+    }
+
+    @Test
+    void sameVersionWithDifferentRatesIsNotNotModified() throws Exception {
+        // Экземпляр после перезапуска дошёл до той же версии, но с другими курсами
+        RateSnapshot before = RateSnapshot.EMPTY.merge(List.of(rate("90.00", T0)));
+        RateSnapshot afterRestart = RateSnapshot.EMPTY.merge(List.of(rate("91.00", T0.plusSeconds(1))));
+        String etag = etagOf(before);
+
+        assertThat(afterRestart.getVersion()).isEqualTo(before.getVersion());
+        when(exchangeService.getSnapshot()).thenReturn(afterRestart);
+        mockMvc.perform(get("/api/exchange/rates").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void changedSnapshotGetsNewEtag() throws Exception {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate("90.00", T0)));
+        when(exchangeService.getSnapshot()).thenReturn(snapshot);
+        String etag = etagOf(snapshot);
+
+        when(exchangeService.getSnapshot()).thenReturn(snapshot.merge(List.of(rate("91.00", T0.plusSeconds(1)))));
+
+        assertThat(etagOf(exchangeService.getSnapshot())).isNotEqualTo(etag);
+        mockMvc.perform(get("/api/exchange/rates").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private String etagOf(RateSnapshot snapshot) throws Exception {
+        when(exchangeService.getSnapshot()).thenReturn(snapshot);
+        return mockMvc.perform(get("/api/exchange/rates"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+    }
+
+    private static ExchangeRateDto rate(String buy, LocalDateTime updatedAt) {
+        return ExchangeRateDto.builder()
+                .id(1L)
+                .currencyCode("USD")
+                .buyRate(new BigDecimal(buy))
+                .sellRate(new BigDecimal("95.00"))
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
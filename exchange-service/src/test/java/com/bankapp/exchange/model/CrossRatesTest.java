@@ -0,0 +1,119 @@
+package com.bankapp.exchange.model;
+
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link CrossRates}: конвертация в long совпадает с BigDecimal при тех же курсах.
+ */
+class CrossRatesTest {
+
+    private final CrossRates crossRates = CrossRates.of(List.of(
+            rate("USD", "94.0275", "94.9725"),
+            rate("EUR", "100.9925", "102.0075"),
+            rate("CNY", "12.9871", "13.1229"),
+            rate("XXX", "1.5", "2")));
+
+    @Test
+    void longPathMatchesBigDecimalOnRandomAmounts() {
+        Random random = new Random(20261017);
+        String[] codes = {"RUB", "USD", "EUR", "CNY", "XXX"};
+        for (int i = 0; i < 1_000_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(1_000_000_000_000L), CrossRates.AMOUNT_SCALE);
+            int from = crossRates.indexOf(codes[random.nextInt(codes.length)]);
+            int to = crossRates.indexOf(codes[random.nextInt(codes.length)]);
+
+            BigDecimal expected = amount.multiply(crossRates.rate(from, to))
+                    .setScale(CrossRates.AMOUNT_SCALE, RoundingMode.HALF_UP);
+            BigDecimal actual = crossRates.convert(amount, from, to);
+            if (actual.compareTo(expected) != 0) {
+                throw new AssertionError(amount + " " + codes[from] + "->" + codes[to]
+                        + ": expected " + expected + " but got " + actual);
+            }
+        }
+    }
+
+    @Test
+    void roundsHalfUp() {
+        int xxx = crossRates.indexOf("XXX");
+        int rub = crossRates.indexOf("RUB");
+
+        // XXX->RUB = 1.5, RUB->XXX = 0.5
+        assertThat(crossRates.convert(new BigDecimal("0.01"), xxx, rub)).isEqualByComparingTo("0.02");
+        assertThat(crossRates.convert(new BigDecimal("0.03"), xxx, rub)).isEqualByComparingTo("0.05");
+        assertThat(crossRates.convert(new BigDecimal("0.01"), rub, xxx)).isEqualByComparingTo("0.01");
+        assertThat(crossRates.convert(new BigDecimal("0.02"), rub, xxx)).isEqualByComparingTo("0.01");
+    }
+
+    @Test
+    void crossRateIsRoundedToEightDigits() {
+        BigDecimal expected = new BigDecimal("94.0275").divide(new BigDecimal("102.0075"), 8, RoundingMode.HALF_UP);
+
+        assertThat(crossRates.rate(crossRates.indexOf("USD"), crossRates.indexOf("EUR"))).isEqualTo(expected);
+    }
+
+    @Test
+    void fallsBackToBigDecimalOnOverflow() {
+        int usd = crossRates.indexOf("USD");
+        int eur = crossRates.indexOf("EUR");
+        BigDecimal amount = new BigDecimal("123456789012345.67");   // 10^16 минимальных единиц * курс > Long.MAX_VALUE
+
+        BigDecimal expected = amount.multiply(crossRates.rate(usd, eur))
+                .setScale(CrossRates.AMOUNT_SCALE, RoundingMode.HALF_UP);
+
+        assertThat(crossRates.convert(amount, usd, eur)).isEqualTo(expected);
+    }
+
+    @Test
+    void fallsBackToBigDecimalOnSubMinorAmount() {
+        int xxx = crossRates.indexOf("XXX");
+        int rub = crossRates.indexOf("RUB");
+
+        assertThat(crossRates.convert(new BigDecimal("1.005"), xxx, rub)).isEqualTo(new BigDecimal("1.51"));
+    }
+
+    @Test
+    void sameCurrencyKeepsAmount() {
+        for (String code : List.of("RUB", "USD", "EUR")) {
+            int i = crossRates.indexOf(code);
+            assertThat(crossRates.rate(i, i)).isEqualByComparingTo(BigDecimal.ONE);
+            assertThat(crossRates.convert(new BigDecimal("1234.56"), i, i)).isEqualTo(new BigDecimal("1234.56"));
+        }
+    }
+
+    @Test
+    void lookupIsCaseInsensitive() {
+        assertThat(crossRates.indexOf("usd")).isEqualTo(crossRates.indexOf("USD"));
+    }
+
+    @Test
+    void rejectsUnknownCurrency() {
+        assertThatThrownBy(() -> crossRates.indexOf("GBP"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("GBP");
+    }
+
+    @Test
+    void rejectsNegativeAmount() {
+        int rub = crossRates.indexOf("RUB");
+
+        assertThatThrownBy(() -> crossRates.convert(new BigDecimal("-1"), rub, rub))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ExchangeRateDto rate(String code, String buy, String sell) {
+        return ExchangeRateDto.builder()
+                .currencyCode(code)
+                .buyRate(new BigDecimal(buy))
+                .sellRate(new BigDecimal(sell))
+                .build();
+    }
+}
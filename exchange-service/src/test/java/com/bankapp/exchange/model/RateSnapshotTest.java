@@ -0,0 +1,132 @@
+package com.bankapp.exchange.model;
+
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RateSnapshot#merge}: устаревшие и повторные курсы не меняют снимок и его версию.
+ */
+class RateSnapshotTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 17, 12, 0, 0);
+
+    @Test
+    void newerRateReplacesAndBumpsVersion() {
+        RateSnapshot first = RateSnapshot.EMPTY.merge(List.of(rate(1L, "USD", "90.00", T0)));
+
+        RateSnapshot second = first.merge(List.of(rate(1L, "USD", "91.00", T0.plusSeconds(1))));
+
+        assertThat(second.getVersion()).isEqualTo(first.getVersion() + 1);
+        assertThat(second.getRate("USD").getBuyRate()).isEqualByComparingTo("91.00");
+        assertThat(first.getRate("USD").getBuyRate()).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void staleRateIsIgnored() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate(1L, "USD", "91.00", T0.plusSeconds(1))));
+
+        RateSnapshot merged = snapshot.merge(List.of(rate(1L, "USD", "90.00", T0)));
+
+        assertThat(merged).isSameAs(snapshot);
+        assertThat(merged.getRate("USD").getBuyRate()).isEqualByComparingTo("91.00");
+    }
+
+    @Test
+    void outOfOrderTicksKeepNewestRate() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(
+                rate(null, "USD", "92.00", T0.plusSeconds(2)),
+                rate(null, "USD", "90.00", T0),
+                rate(null, "USD", "91.00", T0.plusSeconds(1))));
+
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+        assertThat(snapshot.getRate("USD").getBuyRate()).isEqualByComparingTo("92.00");
+    }
+
+    @Test
+    void mergesOnlyNewerCurrenciesFromMixedBatch() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(
+                rate(1L, "USD", "90.00", T0.plusSeconds(1)),
+                rate(2L, "EUR", "100.00", T0)));
+
+        RateSnapshot merged = snapshot.merge(List.of(
+                rate(1L, "USD", "89.00", T0),
+                rate(2L, "EUR", "101.00", T0.plusSeconds(1))));
+
+        assertThat(merged.getVersion()).isEqualTo(snapshot.getVersion() + 1);
+        assertThat(merged.getRate("USD").getBuyRate()).isEqualByComparingTo("90.00");
+        assertThat(merged.getRate("EUR").getBuyRate()).isEqualByComparingTo("101.00");
+    }
+
+    @Test
+    void unchangedRatesKeepSameSnapshot() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate(1L, "USD", "90.00", T0)));
+
+        // Тот же курс, прочитанный из БД позже и с другим масштабом
+        RateSnapshot merged = snapshot.merge(List.of(rate(1L, "USD", "90.0", T0.plusSeconds(5))));
+
+        assertThat(merged).isSameAs(snapshot);
+        assertThat(merged.getVersion()).isEqualTo(snapshot.getVersion());
+        assertThat(merged.getCreatedAt()).isEqualTo(snapshot.getCreatedAt());
+        assertThat(snapshot.merge(List.of())).isSameAs(snapshot);
+    }
+
+    @Test
+    void tickWithSameRateDoesNotReplaceStoredRow() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate(1L, "USD", "90.00", T0)));
+
+        RateSnapshot merged = snapshot.merge(List.of(rate(null, "USD", "90.00", T0.plusSeconds(1))));
+
+        assertThat(merged).isSameAs(snapshot);
+        assertThat(merged.getRate("USD").getId()).isEqualTo(1L);
+    }
+
+    @Test
+    void rateWithoutTimestampIsRejected() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate(1L, "USD", "90.00", T0)));
+
+        RateSnapshot merged = snapshot.merge(List.of(
+                rate(null, "USD", "91.00", null),
+                rate(null, "EUR", "100.00", null)));
+
+        assertThat(merged).isSameAs(snapshot);
+        assertThat(merged.getRate("USD").getBuyRate()).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void findsRateIgnoringCase() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate(1L, "USD", "90.00", T0)));
+
+        assertThat(snapshot.find("usd")).isPresent();
+        assertThat(snapshot.find("GBP")).isEmpty();
+        assertThat(snapshot.hasRate("USD", new BigDecimal("90.0"), new BigDecimal("91.000"))).isTrue();
+        assertThat(snapshot.hasRate("usd", new BigDecimal("90.0"), new BigDecimal("91.000"))).isTrue();
+    }
+
+    @Test
+    void normalizesCurrencyCodeOnMerge() {
+        RateSnapshot snapshot = RateSnapshot.EMPTY.merge(List.of(rate(1L, "usd", "90.00", T0)));
+
+        RateSnapshot merged = snapshot.merge(List.of(rate(1L, "USD", "91.00", T0.plusSeconds(1))));
+
+        assertThat(snapshot.getRates()).extracting(ExchangeRateDto::getCurrencyCode).containsExactly("USD");
+        assertThat(snapshot.getCrossRates().indexOf("usd")).isEqualTo(snapshot.getCrossRates().indexOf("USD"));
+        assertThat(merged.getRates()).hasSize(1);
+        assertThat(merged.getRate("usd").getBuyRate()).isEqualByComparingTo("91.00");
+    }
+
+    private static ExchangeRateDto rate(Long id, String code, String buy, LocalDateTime updatedAt) {
+        return ExchangeRateDto.builder()
+                .id(id)
+                .currencyCode(code)
+                .buyRate(new BigDecimal(buy))
+                .sellRate(new BigDecimal(buy).add(BigDecimal.ONE))
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
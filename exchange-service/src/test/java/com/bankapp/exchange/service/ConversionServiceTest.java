@@ -0,0 +1,86 @@
+package com.bankapp.exchange.service;
+
+import com.bankapp.exchange.model.RateSnapshot;
+import com.bankapp.exchange.model.dto.ConversionRequest;
+import com.bankapp.exchange.model.dto.ConversionResult;
+import com.bankapp.exchange.model.dto.ExchangeRateDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ConversionService}: конвертация по снимку, ошибки запросов в пакете.
+ */
+class ConversionServiceTest {
+
+    private ConversionService conversionService;
+    private RateSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = RateSnapshot.EMPTY.merge(List.of(ExchangeRateDto.builder()
+                .currencyCode("USD")
+                .buyRate(new BigDecimal("90.00"))
+                .sellRate(new BigDecimal("100.00"))
+                .updatedAt(LocalDateTime.of(2026, 10, 17, 12, 0, 0))
+                .build()));
+        ExchangeService exchangeService = mock(ExchangeService.class);
+        when(exchangeService.getSnapshot()).thenReturn(snapshot);
+        conversionService = new ConversionService(exchangeService);
+    }
+
+    @Test
+    void convertsBySnapshotCrossRate() {
+        ConversionResult result = conversionService.convert(new ConversionRequest("usd", "rub", new BigDecimal("10")));
+
+        assertThat(result.getFrom()).isEqualTo("USD");
+        assertThat(result.getTo()).isEqualTo("RUB");
+        assertThat(result.getResult()).isEqualByComparingTo("900.00");
+        assertThat(result.getRate()).isEqualByComparingTo("90");
+        assertThat(result.getVersion()).isEqualTo(snapshot.getVersion());
+        assertThat(result.getError()).isNull();
+    }
+
+    @Test
+    void sameCurrencyReturnsAmount() {
+        ConversionResult result = conversionService.convert(new ConversionRequest("USD", "USD", new BigDecimal("12.34")));
+
+        assertThat(result.getResult()).isEqualByComparingTo("12.34");
+        assertThat(result.getRate()).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    void unknownCurrencyIsRejected() {
+        assertThatThrownBy(() -> conversionService.convert(new ConversionRequest("GBP", "RUB", BigDecimal.ONE)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("GBP");
+    }
+
+    @Test
+    void missingFieldsAreRejected() {
+        assertThatThrownBy(() -> conversionService.convert(new ConversionRequest("USD", null, BigDecimal.ONE)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void batchReportsErrorsPerRequest() {
+        List<ConversionResult> results = conversionService.convertBatch(List.of(
+                new ConversionRequest("RUB", "USD", new BigDecimal("1000")),
+                new ConversionRequest("RUB", "GBP", new BigDecimal("1000")),
+                new ConversionRequest("USD", "RUB", new BigDecimal("-1"))));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getResult()).isEqualByComparingTo("10.00");
+        assertThat(results.get(1).getResult()).isNull();
+        assertThat(results.get(1).getError()).contains("GBP");
+        assertThat(results.get(2).getError()).contains("negative");
+    }
+}
@@ -88,6 +88,16 @@ CREATE TABLE IF NOT EXISTS accounts (
     CONSTRAINT check_positive_balance CHECK (balance >= 0)
 );
 
+-- Журнал обработанных Saga запросов: повторная доставка не меняет баланс,
+-- а повторяет сохранённый ответ
+CREATE TABLE IF NOT EXISTS processed_sagas (
+    saga_id VARCHAR(36) PRIMARY KEY,
+    response_event_type VARCHAR(50) NOT NULL,
+    response_payload BYTEA NOT NULL,
+    response_content_type VARCHAR(50) NOT NULL,
+    processed_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
 CREATE TABLE IF NOT EXISTS outbox_events (
     id BIGSERIAL PRIMARY KEY,
     aggregate_type VARCHAR(50) NOT NULL,
@@ -103,6 +113,7 @@ CREATE INDEX IF NOT EXISTS idx_users_login ON users(login);
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_accounts_user_id ON accounts(user_id);
 CREATE INDEX IF NOT EXISTS idx_accounts_currency ON accounts(currency);
+CREATE INDEX IF NOT EXISTS idx_processed_sagas_processed_at ON processed_sagas(processed_at);
 CREATE INDEX IF NOT EXISTS idx_outbox_processed ON outbox_events(processed);
 CREATE INDEX IF NOT EXISTS idx_outbox_created_at ON outbox_events(created_at);
 
@@ -120,6 +131,8 @@ CREATE TABLE IF NOT EXISTS cash_operations (
     saga_id VARCHAR(36) NOT NULL UNIQUE,
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
     error_message TEXT,
+    attempts INT NOT NULL DEFAULT 1,
+    compensation_saga_id VARCHAR(36) UNIQUE,
     created_at TIMESTAMP NOT NULL DEFAULT NOW(),
     updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
     CONSTRAINT check_positive_amount CHECK (amount > 0),
@@ -131,7 +144,10 @@ CREATE INDEX IF NOT EXISTS idx_cash_operations_user_login ON cash_operations(use
 CREATE INDEX IF NOT EXISTS idx_cash_operations_created_at ON cash_operations(created_at);
 CREATE INDEX IF NOT EXISTS idx_cash_operations_operation_type ON cash_operations(operation_type);
 CREATE INDEX IF NOT EXISTS idx_cash_operations_saga_id ON cash_operations(saga_id);
-CREATE INDEX IF NOT EXISTS idx_cash_operations_status ON cash_operations(status);
+-- Только незавершённые операции: индекс не растёт вместе с историей, по нему SagaTimeoutSweeper
+-- выбирает зависшие операции
+CREATE INDEX IF NOT EXISTS idx_cash_operations_pending_updated_at ON cash_operations(updated_at)
+    WHERE status = 'PENDING';
 
 CREATE TABLE IF NOT EXISTS outbox_events (
     id BIGSERIAL PRIMARY KEY,
@@ -195,6 +211,92 @@ INSERT INTO exchange_rates (currency_code, buy_rate, sell_rate) VALUES
 ('EUR', 96.40, 90.70)
 ON CONFLICT (currency_code) DO NOTHING;
 
+-- История курсов: только изменения (строки, которые upsert тика действительно изменил).
+-- Секционирование по дням: секции создаёт и удаляет по сроку хранения RateHistoryService,
+-- DEFAULT принимает строки, если секция дня ещё не создана.
+CREATE TABLE IF NOT EXISTS rate_history (
+    currency_code VARCHAR(3) NOT NULL,
+    recorded_at TIMESTAMP NOT NULL,
+    buy_rate DECIMAL(19, 4) NOT NULL,
+    sell_rate DECIMAL(19, 4) NOT NULL,
+    PRIMARY KEY (currency_code, recorded_at)
+) PARTITION BY RANGE (recorded_at);
+
+CREATE TABLE IF NOT EXISTS rate_history_default PARTITION OF rate_history DEFAULT;
+
+-- Начальные курсы - первые записи истории (курс на момент любой операции известен)
+INSERT INTO rate_history (currency_code, recorded_at, buy_rate, sell_rate)
+SELECT currency_code, updated_at, buy_rate, sell_rate FROM exchange_rates
+ON CONFLICT DO NOTHING;
+
+-- OHLC бары курсов ('1m', '1h'), считаются инкрементально тем же запросом, что пишет тик.
+-- Бары в 1 секунду не хранятся: при тике раз в секунду это сами строки rate_history.
+CREATE TABLE IF NOT EXISTS rate_bars (
+    currency_code VARCHAR(3) NOT NULL,
+    resolution VARCHAR(2) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    buy_open DECIMAL(19, 4) NOT NULL,
+    buy_high DECIMAL(19, 4) NOT NULL,
+    buy_low DECIMAL(19, 4) NOT NULL,
+    buy_close DECIMAL(19, 4) NOT NULL,
+    sell_open DECIMAL(19, 4) NOT NULL,
+    sell_high DECIMAL(19, 4) NOT NULL,
+    sell_low DECIMAL(19, 4) NOT NULL,
+    sell_close DECIMAL(19, 4) NOT NULL,
+    first_at TIMESTAMP NOT NULL,            -- время первого изменения в баре (для open)
+    last_at TIMESTAMP NOT NULL,             -- время последнего изменения в баре (для close)
+    tick_count INT NOT NULL,
+    PRIMARY KEY (currency_code, resolution, bucket_start)
+);
+
+-- Секция rate_history на день (имя rate_history_YYYYMMDD); false - уже существует.
+-- Строки дня, попавшие в DEFAULT до создания секции, переносятся в неё.
+CREATE OR REPLACE FUNCTION ensure_rate_history_partition(day DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_name TEXT := 'rate_history_' || to_char(day, 'YYYYMMDD');
+BEGIN
+    IF to_regclass('exchange.' || partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    -- Вставки ждут до конца транзакции: строка дня не попадёт в DEFAULT между
+    -- переносом и ATTACH; параллельный вызов ждёт здесь и видит готовую секцию
+    LOCK TABLE exchange.rate_history IN SHARE ROW EXCLUSIVE MODE;
+    IF to_regclass('exchange.' || partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE exchange.%I (LIKE exchange.rate_history INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                   partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM exchange.rate_history_default'
+                   ' WHERE recorded_at >= %L AND recorded_at < %L RETURNING *)'
+                   ' INSERT INTO exchange.%I SELECT * FROM moved',
+                   day, day + 1, partition_name);
+    EXECUTE format('ALTER TABLE exchange.rate_history ATTACH PARTITION exchange.%I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, day, day + 1);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Удалить дневные секции rate_history раньше before; возвращает число удалённых секций
+CREATE OR REPLACE FUNCTION drop_rate_history_partitions(before DATE) RETURNS INT AS $$
+DECLARE
+    partition_name TEXT;
+    dropped INT := 0;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'exchange.rate_history'::regclass
+          AND c.relname ~ '^rate_history_[0-9]{8}$'
+          AND to_date(substring(c.relname FROM 14), 'YYYYMMDD') < before
+    LOOP
+        EXECUTE format('DROP TABLE exchange.%I', partition_name);
+        dropped := dropped + 1;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
 -- ========================================
 -- 8. NOTIFICATIONS SCHEMA - Notifications table
 -- ========================================
@@ -242,14 +344,42 @@ SET search_path TO outbox;
 
 CREATE TABLE IF NOT EXISTS outbox_events (
     id BIGSERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(50) NULL,        -- 'USER'
+    aggregate_id VARCHAR(100) NULL,         -- логин: события одного агрегата отправляются по порядку
     event_type VARCHAR(50) NOT NULL,        -- 'CASH_DEPOSIT', 'CASH_WITHDRAW', 'TRANSFER', etc.
-    payload TEXT NOT NULL,                  -- JSON строка с данными события
-    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+    payload TEXT NULL,                      -- JSON строка (строки, записанные до payload_bytes)
+    payload_bytes BYTEA NULL,               -- закодированное событие (SagaEventCodec)
+    content_type VARCHAR(50) NULL,          -- формат payload_bytes: application/x-bankapp-saga или application/json
+    trace_context VARCHAR(128) NULL,        -- W3C traceparent операции, записавшей событие (заголовок NATS)
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    processed BOOLEAN NOT NULL DEFAULT FALSE,
+    processed_at TIMESTAMP NULL
 );
 
 -- Индекс для сортировки по времени (FIFO)
 CREATE INDEX IF NOT EXISTS idx_outbox_created_at ON outbox_events(created_at);
 
+-- Индекс для захвата неотправленных событий конкретного сервиса (claimBatch)
+CREATE INDEX IF NOT EXISTS idx_outbox_pending_event_type_id
+    ON outbox_events(event_type, id) WHERE processed = FALSE;
+
+-- Индекс для очистки помеченных событий (OutboxCompactor)
+CREATE INDEX IF NOT EXISTS idx_outbox_processed_at ON outbox_events(processed_at) WHERE processed = TRUE;
+
+-- Уведомление OutboxProcessor о новом событии (LISTEN outbox_events).
+-- NOTIFY доставляется после коммита транзакции; payload - тип события.
+CREATE OR REPLACE FUNCTION notify_outbox_event() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('outbox_events', NEW.event_type);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_outbox_events_notify ON outbox_events;
+CREATE TRIGGER trg_outbox_events_notify
+    AFTER INSERT ON outbox_events
+    FOR EACH ROW EXECUTE FUNCTION notify_outbox_event();
+
 -- ========================================
 -- Reset search path
 -- ========================================
@@ -0,0 +1,13 @@
+package com.bankapp.loadgenerator;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LoadGeneratorApplication {
+
+    public static void main(String[] args) {
+        // Завершаемся после прогона: код выхода - от LoadRunner
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadGeneratorApplication.class, args)));
+    }
+}
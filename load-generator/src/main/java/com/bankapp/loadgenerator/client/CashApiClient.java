@@ -0,0 +1,90 @@
+package com.bankapp.loadgenerator.client;
+
+import com.bankapp.loadgenerator.dto.CashOperationRequest;
+import com.bankapp.loadgenerator.dto.CashOperationResponse;
+import com.bankapp.loadgenerator.dto.OperationType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Асинхронный HTTP клиент кассовых операций cash-service.
+ *
+ * Запросы не блокируют поток генератора: ответы обрабатываются на executor,
+ * так что тысячи операций могут ждать завершения Saga одновременно.
+ */
+public class CashApiClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+
+    public CashApiClient(String baseUrl, Duration requestTimeout, ObjectMapper objectMapper, Executor executor) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Начать операцию (POST deposit/withdraw); ответ - операция в статусе PENDING.
+     */
+    public CompletableFuture<CashOperationResponse> submit(OperationType type, CashOperationRequest request) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + type.getPath()))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(request)))
+                .build();
+        return send(httpRequest);
+    }
+
+    /**
+     * Long-poll завершения Saga; по истечении timeout приходит операция в статусе PENDING.
+     */
+    public CompletableFuture<CashOperationResponse> await(String sagaId, Duration timeout) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(
+                        URI.create(baseUrl + "/api/cash/operations/" + sagaId + "/await?timeout=" + timeout))
+                // Сервер держит запрос до timeout - даём запас на ответ
+                .timeout(timeout.plus(requestTimeout))
+                .GET()
+                .build();
+        return send(httpRequest);
+    }
+
+    private CompletableFuture<CashOperationResponse> send(HttpRequest httpRequest) {
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException(
+                                "HTTP " + response.statusCode() + " from " + httpRequest.uri().getPath()));
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), CashOperationResponse.class);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private byte[] toJson(CashOperationRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize request: " + e.getMessage(), e);
+        }
+    }
+}
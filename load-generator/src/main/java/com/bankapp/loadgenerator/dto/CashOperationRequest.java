@@ -0,0 +1,19 @@
+package com.bankapp.loadgenerator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Тело запроса /api/cash/deposit и /api/cash/withdraw.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CashOperationRequest {
+    private String login;
+    private String currency;
+    private BigDecimal value;
+}
@@ -0,0 +1,34 @@
+package com.bankapp.loadgenerator.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Операция из ответа cash-service (нужные генератору поля CashOperation).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CashOperationResponse {
+
+    public static final String STATUS_PENDING = "PENDING";
+
+    private String sagaId;
+    private String userLogin;
+    private String currency;
+    private BigDecimal amount;
+    private String operationType;
+    private String status;
+    private String errorMessage;
+
+    public boolean isPending() {
+        return STATUS_PENDING.equals(status);
+    }
+}
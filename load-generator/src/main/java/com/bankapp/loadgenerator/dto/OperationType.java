@@ -0,0 +1,19 @@
+package com.bankapp.loadgenerator.dto;
+
+/**
+ * Тип кассовой операции и её endpoint в cash-service.
+ */
+public enum OperationType {
+    DEPOSIT("/api/cash/deposit"),
+    WITHDRAW("/api/cash/withdraw");
+
+    private final String path;
+
+    OperationType(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+}
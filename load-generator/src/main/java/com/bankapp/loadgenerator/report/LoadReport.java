@@ -0,0 +1,152 @@
+package com.bankapp.loadgenerator.report;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Результаты прогона: задержки HTTP запроса и завершения Saga (HdrHistogram, мкс)
+ * и счётчики исходов.
+ *
+ * Задержка считается от запланированного момента отправки, а не от фактического:
+ * если генератор или стенд не успевают, ожидание попадает в гистограмму
+ * (без coordinated omission).
+ */
+@Slf4j
+public class LoadReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    /**
+     * Исход операции.
+     */
+    public enum Outcome {
+        COMPLETED,
+        FAILED,
+        COMPENSATED,
+        SAGA_TIMEOUT,
+        REQUEST_ERROR,
+        /** Операция не завершилась к концу прогона. */
+        UNFINISHED
+    }
+
+    private final Recorder requestRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder sagaRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram requestTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram sagaTotal = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Map<Outcome, AtomicLong> outcomes = new EnumMap<>(Outcome.class);
+    private final AtomicLong submitted = new AtomicLong();
+
+    private Histogram requestInterval;
+    private Histogram sagaInterval;
+    private long intervalStartedNanos = System.nanoTime();
+
+    public LoadReport() {
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    public void recordSubmitted() {
+        submitted.incrementAndGet();
+    }
+
+    public void recordRequest(long latencyNanos) {
+        requestRecorder.recordValue(toMicros(latencyNanos));
+    }
+
+    public void recordOutcome(Outcome outcome, long sagaLatencyNanos) {
+        outcomes.get(outcome).incrementAndGet();
+        if (outcome == Outcome.COMPLETED || outcome == Outcome.FAILED || outcome == Outcome.COMPENSATED) {
+            sagaRecorder.recordValue(toMicros(sagaLatencyNanos));
+        }
+    }
+
+    /**
+     * Вывести статистику интервала с прошлого вызова и добавить её к итогам.
+     */
+    public synchronized void logInterval(long inFlight) {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - intervalStartedNanos) / 1e9);
+        intervalStartedNanos = now;
+
+        requestInterval = requestRecorder.getIntervalHistogram(requestInterval);
+        sagaInterval = sagaRecorder.getIntervalHistogram(sagaInterval);
+        requestTotal.add(requestInterval);
+        sagaTotal.add(sagaInterval);
+
+        log.info("interval: requests {}/s (p99 {} ms), sagas {}/s (p50 {} ms, p99 {} ms), in flight {}",
+                rate(requestInterval.getTotalCount(), seconds), millis(requestInterval.getValueAtPercentile(99)),
+                rate(sagaInterval.getTotalCount(), seconds), millis(sagaInterval.getValueAtPercentile(50)),
+                millis(sagaInterval.getValueAtPercentile(99)), inFlight);
+    }
+
+    /**
+     * Итог прогона длительностью measured.
+     */
+    public synchronized void logSummary(Duration measured) {
+        logInterval(0);
+        double seconds = Math.max(1e-9, measured.toNanos() / 1e9);
+        long completedSagas = sagaTotal.getTotalCount();
+
+        log.info("==== Load test summary ({} s) ====", String.format("%.1f", seconds));
+        log.info("submitted: {}, throughput: requests {}/s, finished sagas {}/s",
+                submitted.get(), rate(requestTotal.getTotalCount(), seconds), rate(completedSagas, seconds));
+        log.info("outcomes: {}", outcomes);
+        logPercentiles("request latency", requestTotal);
+        logPercentiles("saga latency   ", sagaTotal);
+    }
+
+    /**
+     * Сохранить распределения в формате .hgrm (для HdrHistogram plotter).
+     */
+    public synchronized void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        write(directory.resolve("request-latency.hgrm"), requestTotal);
+        write(directory.resolve("saga-latency.hgrm"), sagaTotal);
+        log.info("Histograms written to {}", directory.toAbsolutePath());
+    }
+
+    /**
+     * Число операций, завершившихся ошибкой HTTP, не дождавшихся Saga или не завершённых к концу прогона.
+     */
+    public long errorCount() {
+        return outcomes.get(Outcome.REQUEST_ERROR).get() + outcomes.get(Outcome.SAGA_TIMEOUT).get()
+                + outcomes.get(Outcome.UNFINISHED).get();
+    }
+
+    private void logPercentiles(String name, Histogram histogram) {
+        log.info("{}: count {}, p50 {} ms, p99 {} ms, p99.9 {} ms, max {} ms", name, histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private static void write(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            // Значения в мкс, в файле - в мс
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+
+    private static String rate(long count, double seconds) {
+        return String.format("%.1f", count / seconds);
+    }
+}
@@ -0,0 +1,271 @@
+package com.bankapp.loadgenerator.runner;
+
+import com.bankapp.loadgenerator.client.CashApiClient;
+import com.bankapp.loadgenerator.dto.CashOperationRequest;
+import com.bankapp.loadgenerator.dto.CashOperationResponse;
+import com.bankapp.loadgenerator.dto.OperationType;
+import com.bankapp.loadgenerator.report.LoadReport;
+import com.bankapp.loadgenerator.report.LoadReport.Outcome;
+import com.bankapp.loadgenerator.standin.StandInCashService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Прогон нагрузки на цикл Saga cash-service -> NATS -> accounts-service -> NATS -> cash-service.
+ *
+ * Открытая модель: операции отправляются с постоянной частотой load.rate независимо
+ * от ответов, число одновременно незавершённых операций ограничено load.max-in-flight.
+ * Каждая операция отслеживается по sagaId до завершения через long-poll
+ * /operations/{sagaId}/await. Операции, запланированные на первые load.warmup,
+ * выполняются, но в отчёт не попадают.
+ */
+@Component
+@Slf4j
+public class LoadRunner implements CommandLineRunner, ExitCodeGenerator {
+
+    private final ObjectMapper objectMapper;
+    private final String targetUrl;
+    private final double rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final int maxInFlight;
+    private final double depositRatio;
+    private final int users;
+    private final String userPrefix;
+    private final String currency;
+    private final BigDecimal minAmount;
+    private final BigDecimal maxAmount;
+    private final boolean awaitCompletion;
+    private final Duration requestTimeout;
+    private final Duration awaitTimeout;
+    private final Duration sagaTimeout;
+    private final Duration reportInterval;
+    private final String histogramOutput;
+    private final boolean standInEnabled;
+    private final Duration standInMinDelay;
+    private final Duration standInMaxDelay;
+    private final double standInFailureRate;
+
+    private final LoadReport report = new LoadReport();
+    // Измеряемые операции без записанного исхода; исход записывает тот, кто удалил операцию
+    private final Set<Object> unfinished = ConcurrentHashMap.newKeySet();
+    private int exitCode;
+
+    public LoadRunner(ObjectMapper objectMapper,
+                      @Value("${load.target-url:http://localhost:8083}") String targetUrl,
+                      @Value("${load.rate:100}") double rate,
+                      @Value("${load.duration:PT60S}") Duration duration,
+                      @Value("${load.warmup:PT10S}") Duration warmup,
+                      @Value("${load.max-in-flight:1000}") int maxInFlight,
+                      @Value("${load.deposit-ratio:0.7}") double depositRatio,
+                      @Value("${load.users:100}") int users,
+                      @Value("${load.user-prefix:user_}") String userPrefix,
+                      @Value("${load.currency:RUB}") String currency,
+                      @Value("${load.min-amount:1}") BigDecimal minAmount,
+                      @Value("${load.max-amount:100}") BigDecimal maxAmount,
+                      @Value("${load.completion:await}") String completion,
+                      @Value("${load.request-timeout:PT10S}") Duration requestTimeout,
+                      @Value("${load.await-timeout:PT25S}") Duration awaitTimeout,
+                      @Value("${load.saga-timeout:PT60S}") Duration sagaTimeout,
+                      @Value("${load.report-interval:PT5S}") Duration reportInterval,
+                      @Value("${load.histogram-output:}") String histogramOutput,
+                      @Value("${load.stand-in.enabled:false}") boolean standInEnabled,
+                      @Value("${load.stand-in.min-delay:PT0.005S}") Duration standInMinDelay,
+                      @Value("${load.stand-in.max-delay:PT0.05S}") Duration standInMaxDelay,
+                      @Value("${load.stand-in.failure-rate:0.02}") double standInFailureRate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("load.rate must be positive: " + rate);
+        }
+        this.objectMapper = objectMapper;
+        this.targetUrl = targetUrl;
+        this.rate = rate;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.maxInFlight = maxInFlight;
+        this.depositRatio = depositRatio;
+        this.users = users;
+        this.userPrefix = userPrefix;
+        this.currency = currency;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount.max(minAmount);
+        this.awaitCompletion = !"none".equalsIgnoreCase(completion);
+        this.requestTimeout = requestTimeout;
+        this.awaitTimeout = awaitTimeout;
+        this.sagaTimeout = sagaTimeout;
+        this.reportInterval = reportInterval;
+        this.histogramOutput = histogramOutput;
+        this.standInEnabled = standInEnabled;
+        this.standInMinDelay = standInMinDelay;
+        this.standInMaxDelay = standInMaxDelay;
+        this.standInFailureRate = standInFailureRate;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        StandInCashService standIn = standInEnabled
+                ? new StandInCashService(objectMapper, standInMinDelay, standInMaxDelay, standInFailureRate)
+                : null;
+        String baseUrl = standIn != null ? standIn.getUrl() : targetUrl;
+
+        try (ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor()) {
+            CashApiClient client = new CashApiClient(baseUrl, requestTimeout, objectMapper, callbackExecutor);
+            Semaphore inFlight = new Semaphore(maxInFlight);
+
+            log.info("Load test against {}: {} ops/s for {} (+{} warmup), deposits {}%, {} users, completion: {}",
+                    baseUrl, rate, duration, warmup, Math.round(depositRatio * 100), users,
+                    awaitCompletion ? "await" : "none");
+            reporter.scheduleAtFixedRate(() -> report.logInterval(maxInFlight - inFlight.availablePermits()),
+                    reportInterval.toNanos(), reportInterval.toNanos(), TimeUnit.NANOSECONDS);
+
+            long measureStart = System.nanoTime() + warmup.toNanos();
+            generate(client, inFlight, measureStart);
+
+            // Дождаться незавершённых операций
+            if (!inFlight.tryAcquire(maxInFlight, sagaTimeout.plus(requestTimeout).toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} operations still in flight at the end of the run",
+                        maxInFlight - inFlight.availablePermits());
+            }
+            // Не дождавшиеся операции - тоже исход, иначе они не видны в итогах и коде выхода
+            for (Object operation : unfinished) {
+                if (unfinished.remove(operation)) {
+                    report.recordOutcome(Outcome.UNFINISHED, 0);
+                }
+            }
+            reporter.shutdownNow();
+
+            // Замер - от конца разогрева до завершения последней операции
+            report.logSummary(Duration.ofNanos(System.nanoTime() - measureStart));
+            if (!histogramOutput.isBlank()) {
+                report.writeHistograms(Path.of(histogramOutput));
+            }
+            exitCode = report.errorCount() > 0 ? 1 : 0;
+        } finally {
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+    }
+
+    /**
+     * Отправлять операции по расписанию: i-я операция запланирована на start + i / rate.
+     */
+    private void generate(CashApiClient client, Semaphore inFlight, long measureStart) throws InterruptedException {
+        double intervalNanos = 1_000_000_000.0 / rate;
+        long start = measureStart - warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            // Ожидание свободного места входит в задержку операции (от intendedStart)
+            inFlight.acquire();
+            // Операции разогрева выполняются, но в отчёт не попадают
+            boolean measured = intendedStart >= measureStart;
+            if (measured) {
+                report.recordSubmitted();
+            }
+            execute(client, intendedStart, measured)
+                    .whenComplete((ignored, error) -> inFlight.release());
+        }
+    }
+
+    private CompletableFuture<Void> execute(CashApiClient client, long intendedStart, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        OperationType type = random.nextDouble() < depositRatio ? OperationType.DEPOSIT : OperationType.WITHDRAW;
+        CashOperationRequest request = new CashOperationRequest(
+                userPrefix + random.nextInt(users), currency, randomAmount(random));
+        Object token = new Object();
+        if (measured) {
+            unfinished.add(token);
+        }
+
+        return client.submit(type, request)
+                .thenCompose(operation -> {
+                    if (measured) {
+                        report.recordRequest(System.nanoTime() - intendedStart);
+                    }
+                    if (!awaitCompletion || !operation.isPending()) {
+                        return CompletableFuture.completedFuture(operation);
+                    }
+                    return awaitFinished(client, operation, intendedStart + sagaTimeout.toNanos());
+                })
+                .handle((operation, error) -> {
+                    long latency = System.nanoTime() - intendedStart;
+                    // Исход уже записан как UNFINISHED в конце прогона
+                    if (!measured || !unfinished.remove(token)) {
+                        return null;
+                    }
+                    if (error != null) {
+                        log.debug("Operation failed: {}", error.getMessage());
+                        report.recordOutcome(Outcome.REQUEST_ERROR, latency);
+                    } else if (awaitCompletion) {
+                        report.recordOutcome(outcomeOf(operation), latency);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Повторять long-poll, пока операция в PENDING и не истёк sagaTimeout.
+     */
+    private CompletableFuture<CashOperationResponse> awaitFinished(CashApiClient client,
+                                                                   CashOperationResponse operation,
+                                                                   long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return CompletableFuture.completedFuture(operation);
+        }
+        Duration timeout = Duration.ofNanos(Math.min(remaining, awaitTimeout.toNanos()));
+        return client.await(operation.getSagaId(), timeout)
+                .thenCompose(current -> current.isPending()
+                        ? awaitFinished(client, current, deadline)
+                        : CompletableFuture.completedFuture(current));
+    }
+
+    private Outcome outcomeOf(CashOperationResponse operation) {
+        return switch (operation.getStatus()) {
+            case "COMPLETED" -> Outcome.COMPLETED;
+            case "FAILED" -> Outcome.FAILED;
+            case "COMPENSATED" -> Outcome.COMPENSATED;
+            default -> Outcome.SAGA_TIMEOUT;
+        };
+    }
+
+    private BigDecimal randomAmount(ThreadLocalRandom random) {
+        BigDecimal span = maxAmount.subtract(minAmount);
+        return minAmount.add(span.multiply(BigDecimal.valueOf(random.nextDouble())))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
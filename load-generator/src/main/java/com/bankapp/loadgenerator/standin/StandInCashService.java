@@ -0,0 +1,178 @@
+package com.bankapp.loadgenerator.standin;
+
+import com.bankapp.loadgenerator.dto.CashOperationRequest;
+import com.bankapp.loadgenerator.dto.CashOperationResponse;
+import com.bankapp.loadgenerator.dto.OperationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Встроенная замена cash-service для проверки генератора без стенда.
+ *
+ * Повторяет HTTP контракт: POST deposit/withdraw возвращает операцию PENDING,
+ * GET /operations/{sagaId}/await ждёт её завершения. Saga "завершается" через
+ * случайную задержку из [minDelay, maxDelay]; снятие с вероятностью failureRate
+ * заканчивается FAILED, как при нехватке средств.
+ */
+@Slf4j
+public class StandInCashService implements AutoCloseable {
+
+    private static final String OPERATIONS_PREFIX = "/api/cash/operations/";
+    private static final Duration DEFAULT_AWAIT_TIMEOUT = Duration.ofSeconds(25);
+
+    private final ObjectMapper objectMapper;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final double failureRate;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService sagaScheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("stand-in-saga").daemon(true).unstarted(runnable));
+    private final Map<String, CompletableFuture<CashOperationResponse>> operations = new ConcurrentHashMap<>();
+
+    public StandInCashService(ObjectMapper objectMapper, Duration minDelay, Duration maxDelay, double failureRate)
+            throws IOException {
+        this.objectMapper = objectMapper;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay.compareTo(minDelay) < 0 ? minDelay : maxDelay;
+        this.failureRate = failureRate;
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext(OperationType.DEPOSIT.getPath(), exchange -> submit(exchange, OperationType.DEPOSIT));
+        server.createContext(OperationType.WITHDRAW.getPath(), exchange -> submit(exchange, OperationType.WITHDRAW));
+        server.createContext(OPERATIONS_PREFIX, this::await);
+        server.setExecutor(requestExecutor);
+        server.start();
+        log.info("Stand-in cash-service started at {} (saga delay {}..{}, failure rate {})",
+                getUrl(), minDelay, this.maxDelay, failureRate);
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void submit(HttpExchange exchange, OperationType type) throws IOException {
+        try (exchange) {
+            CashOperationRequest request = objectMapper.readValue(exchange.getRequestBody(), CashOperationRequest.class);
+            CashOperationResponse pending = CashOperationResponse.builder()
+                    .sagaId(UUID.randomUUID().toString())
+                    .userLogin(request.getLogin())
+                    .currency(request.getCurrency())
+                    .amount(request.getValue())
+                    .operationType(type.name())
+                    .status(CashOperationResponse.STATUS_PENDING)
+                    .build();
+
+            CompletableFuture<CashOperationResponse> completion = new CompletableFuture<>();
+            operations.put(pending.getSagaId(), completion);
+            sagaScheduler.schedule(() -> completion.complete(finish(pending, type)),
+                    randomDelayNanos(), TimeUnit.NANOSECONDS);
+            // Завершённые операции, которые никто не ждёт, не должны копиться
+            sagaScheduler.schedule(() -> operations.remove(pending.getSagaId()),
+                    maxDelay.toNanos() + TimeUnit.MINUTES.toNanos(1), TimeUnit.NANOSECONDS);
+
+            respond(exchange, 200, pending);
+        }
+    }
+
+    private void await(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            URI uri = exchange.getRequestURI();
+            String path = uri.getPath();
+            if (!path.endsWith("/await")) {
+                respond(exchange, 404, null);
+                return;
+            }
+            String sagaId = path.substring(OPERATIONS_PREFIX.length(), path.length() - "/await".length());
+            CompletableFuture<CashOperationResponse> completion = operations.get(sagaId);
+            if (completion == null) {
+                respond(exchange, 404, null);
+                return;
+            }
+
+            try {
+                respond(exchange, 200, completion.get(awaitTimeout(uri).toNanos(), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                respond(exchange, 200, completion.getNow(pendingOf(sagaId)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, null);
+            } catch (ExecutionException e) {
+                respond(exchange, 500, null);
+            }
+        }
+    }
+
+    private CashOperationResponse finish(CashOperationResponse pending, OperationType type) {
+        boolean failed = type == OperationType.WITHDRAW && ThreadLocalRandom.current().nextDouble() < failureRate;
+        return pending.toBuilder()
+                .status(failed ? "FAILED" : "COMPLETED")
+                .errorMessage(failed ? "Insufficient funds" : null)
+                .build();
+    }
+
+    private CashOperationResponse pendingOf(String sagaId) {
+        return CashOperationResponse.builder()
+                .sagaId(sagaId)
+                .status(CashOperationResponse.STATUS_PENDING)
+                .build();
+    }
+
+    private Duration awaitTimeout(URI uri) {
+        String query = uri.getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("timeout=")) {
+                    return Duration.parse(parameter.substring("timeout=".length()));
+                }
+            }
+        }
+        return DEFAULT_AWAIT_TIMEOUT;
+    }
+
+    private long randomDelayNanos() {
+        long min = minDelay.toNanos();
+        long max = maxDelay.toNanos();
+        return min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        sagaScheduler.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+}
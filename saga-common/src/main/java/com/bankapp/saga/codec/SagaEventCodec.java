@@ -0,0 +1,285 @@
+package com.bankapp.saga.codec;
+
+import com.bankapp.saga.event.BalanceUpdateFailedEvent;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Кодирование Saga событий для Outbox и NATS.
+ *
+ * Двоичный формат: байт версии схемы, байт типа события, затем поля по порядку.
+ * Строки - с префиксом длины (varint, 0 = null), Long - байт наличия и zigzag varint,
+ * BigDecimal - байты немасштабированного значения и масштаб.
+ * JSON остаётся запасным вариантом: application.saga.codec=json для отправки,
+ * а приём понимает оба формата (по заголовку Content-Type или первому байту).
+ */
+@Component
+public class SagaEventCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "Content-Type";
+    public static final String CONTENT_TYPE_JSON = "application/json";
+    public static final String CONTENT_TYPE_BINARY = "application/x-bankapp-saga";
+
+    static final byte SCHEMA_VERSION = 2;
+
+    private static final byte TYPE_BALANCE_UPDATE_REQUESTED = 1;
+    private static final byte TYPE_BALANCE_UPDATED = 2;
+    private static final byte TYPE_BALANCE_UPDATE_FAILED = 3;
+
+    private final ObjectMapper objectMapper;
+    private final boolean binary;
+
+    public SagaEventCodec(ObjectMapper objectMapper,
+                          @Value("${application.saga.codec:binary}") String codec) {
+        this.objectMapper = objectMapper;
+        this.binary = !"json".equalsIgnoreCase(codec);
+    }
+
+    /**
+     * Content-Type, с которым {@link #encode} кодирует события.
+     */
+    public String contentType() {
+        return binary ? CONTENT_TYPE_BINARY : CONTENT_TYPE_JSON;
+    }
+
+    public byte[] encode(Object event) {
+        try {
+            return binary ? encodeBinary(event) : objectMapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode Saga event " + event.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Декодировать сообщение NATS по заголовку Content-Type.
+     */
+    public <T> T decode(Message message, Class<T> type) throws IOException {
+        Headers headers = message.getHeaders();
+        String contentType = headers != null ? headers.getFirst(CONTENT_TYPE_HEADER) : null;
+        return decode(message.getData(), contentType, type);
+    }
+
+    public <T> T decode(byte[] data, String contentType, Class<T> type) throws IOException {
+        // Без заголовка - по первому байту: JSON начинается с '{'
+        boolean binaryPayload = contentType != null
+                ? CONTENT_TYPE_BINARY.equals(contentType)
+                : data.length > 0 && data[0] == SCHEMA_VERSION;
+        if (!binaryPayload) {
+            return objectMapper.readValue(data, type);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte version = in.readByte();
+        if (version != SCHEMA_VERSION) {
+            throw new IOException("Unsupported Saga event schema version: " + version);
+        }
+        byte eventType = in.readByte();
+        Object event = switch (eventType) {
+            case TYPE_BALANCE_UPDATE_REQUESTED -> BalanceUpdateRequestedEvent.builder()
+                    .sagaId(readString(in))
+                    .operationId(readLong(in))
+                    .login(readString(in))
+                    .currency(readString(in))
+                    .amount(readDecimal(in))
+                    .operationType(readString(in))
+                    .build();
+            case TYPE_BALANCE_UPDATED -> BalanceUpdatedEvent.builder()
+                    .sagaId(readString(in))
+                    .operationId(readLong(in))
+                    .login(readString(in))
+                    .currency(readString(in))
+                    .newBalance(readDecimal(in))
+                    .build();
+            case TYPE_BALANCE_UPDATE_FAILED -> BalanceUpdateFailedEvent.builder()
+                    .sagaId(readString(in))
+                    .operationId(readLong(in))
+                    .login(readString(in))
+                    .errorMessage(readString(in))
+                    .errorCode(readString(in))
+                    .build();
+            default -> throw new IOException("Unknown Saga event type: " + eventType);
+        };
+        if (!type.isInstance(event)) {
+            throw new IOException("Expected " + type.getSimpleName() + " but got " + event.getClass().getSimpleName());
+        }
+        return type.cast(event);
+    }
+
+    private byte[] encodeBinary(Object event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SCHEMA_VERSION);
+
+        if (event instanceof BalanceUpdateRequestedEvent e) {
+            out.writeByte(TYPE_BALANCE_UPDATE_REQUESTED);
+            writeString(out, e.getSagaId());
+            writeLong(out, e.getOperationId());
+            writeString(out, e.getLogin());
+            writeString(out, e.getCurrency());
+            writeDecimal(out, e.getAmount());
+            writeString(out, e.getOperationType());
+        } else if (event instanceof BalanceUpdatedEvent e) {
+            out.writeByte(TYPE_BALANCE_UPDATED);
+            writeString(out, e.getSagaId());
+            writeLong(out, e.getOperationId());
+            writeString(out, e.getLogin());
+            writeString(out, e.getCurrency());
+            writeDecimal(out, e.getNewBalance());
+        } else if (event instanceof BalanceUpdateFailedEvent e) {
+            out.writeByte(TYPE_BALANCE_UPDATE_FAILED);
+            writeString(out, e.getSagaId());
+            writeLong(out, e.getOperationId());
+            writeString(out, e.getLogin());
+            writeString(out, e.getErrorMessage());
+            writeString(out, e.getErrorCode());
+        } else {
+            throw new IllegalArgumentException("Unsupported Saga event: " + event.getClass().getName());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length + 1);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length - 1];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        writeVarLong(out, zigZag(value));
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return switch (in.readByte()) {
+            case 0 -> null;
+            case 1 -> unZigZag(readVarLong(in));
+            default -> throw new IOException("Malformed Long presence flag");
+        };
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            writeBytes(out, null);
+            return;
+        }
+        writeBytes(out, value.unscaledValue().toByteArray());
+        writeVarInt(out, zigZag(value.scale()));
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        byte[] unscaled = readBytes(in);
+        if (unscaled == null) {
+            return null;
+        }
+        int scale = unZigZag(readVarInt(in));
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, value.length + 1);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,4 +1,4 @@
-package com.bankapp.cash.event;
+package com.bankapp.saga.event;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
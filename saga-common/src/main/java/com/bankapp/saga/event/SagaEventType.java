@@ -1,4 +1,4 @@
-package com.bankapp.cash.entity;
+package com.bankapp.saga.event;
 
 /**
  * Типы событий для Choreography Saga Pattern.
@@ -22,3 +22,4 @@ public enum SagaEventType {
     SAGA_BALANCE_UPDATE_FAILED
 }
 
+
@@ -0,0 +1,135 @@
+package com.bankapp.saga.listener;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Параллельная обработка сообщений с сохранением порядка внутри ключа.
+ *
+ * Сообщения распределяются по полосам (lanes) по хешу ключа; у каждой полосы своя
+ * ограниченная очередь и один поток. Сообщения с одинаковым ключом (логин) всегда
+ * попадают в одну полосу и обрабатываются последовательно, разные ключи - параллельно.
+ * Заполненная очередь блокирует отправителя (back pressure на NATS Dispatcher).
+ *
+ * Поток полосы забирает сообщения пачками до maxBatchSize, подождав не дольше
+ * batchLinger, пока пачка наполнится, - обработчик получает их одним списком.
+ */
+@Slf4j
+public class KeyedLaneExecutor<T> {
+
+    private final List<BlockingQueue<T>> queues = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final int maxBatchSize;
+    private final long batchLingerNanos;
+    private final Consumer<List<T>> handler;
+    private volatile boolean stopped;
+
+    public KeyedLaneExecutor(String name, int lanes, int queueCapacity, boolean virtualThreads,
+                             int maxBatchSize, Duration batchLinger, Consumer<List<T>> handler) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchLingerNanos = batchLinger.toNanos();
+        this.handler = handler;
+
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name(name + "-", 0).factory()
+                : Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+
+        for (int i = 0; i < lanes; i++) {
+            BlockingQueue<T> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            threads.add(threadFactory.newThread(() -> runLane(queue)));
+        }
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Поставить сообщение в полосу ключа. Блокирует, если очередь полосы заполнена.
+     */
+    public void submit(String key, T item) throws InterruptedException {
+        if (stopped) {
+            throw new IllegalStateException("Executor is stopped");
+        }
+        int lane = Math.floorMod(key != null ? key.hashCode() : 0, queues.size());
+        queues.get(lane).put(item);
+    }
+
+    /**
+     * Суммарное количество сообщений, ожидающих обработки.
+     */
+    public int queuedCount() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private void runLane(BlockingQueue<T> queue) {
+        while (!stopped || !queue.isEmpty()) {
+            List<T> batch;
+            try {
+                batch = takeBatch(queue);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                handler.accept(batch);
+            } catch (Exception e) {
+                log.error("Lane handler failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Дождаться первого сообщения и добрать пачку: сначала всё, что уже в очереди,
+     * затем ждать новых не дольше batchLinger.
+     */
+    private List<T> takeBatch(BlockingQueue<T> queue) throws InterruptedException {
+        T first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return List.of();
+        }
+
+        List<T> batch = new ArrayList<>(maxBatchSize);
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - batch.size());
+
+        long deadline = System.nanoTime() + batchLingerNanos;
+        while (batch.size() < maxBatchSize && !stopped) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+        return batch;
+    }
+
+    /**
+     * Остановить приём, дообработать очереди в пределах timeout.
+     */
+    public void shutdown(Duration timeout) throws InterruptedException {
+        stopped = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Thread thread : threads) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis > 0) {
+                thread.join(remainingMillis);
+            }
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.bankapp.saga.listener;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Накопление сообщений в пачки: пачка передаётся обработчику, когда набралось
+ * maxBatchSize сообщений или прошло linger с момента первого.
+ *
+ * Очередь ограничена: при заполнении отправитель ждёт (back pressure на NATS).
+ */
+@Slf4j
+public class MicroBatcher<T> {
+
+    private final BlockingQueue<T> queue;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Consumer<List<T>> handler;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    public MicroBatcher(String name, int queueCapacity, int maxBatchSize, Duration linger, Consumer<List<T>> handler) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerNanos = linger.toNanos();
+        this.handler = handler;
+        this.thread = Thread.ofPlatform().name(name).daemon(true).start(this::run);
+    }
+
+    public void submit(T item) throws InterruptedException {
+        if (stopped) {
+            throw new IllegalStateException("Batcher is stopped");
+        }
+        queue.put(item);
+    }
+
+    /**
+     * Количество элементов, ожидающих обработки.
+     */
+    public int queuedCount() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (!stopped || !queue.isEmpty()) {
+            List<T> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                handler.accept(batch);
+            } catch (Exception e) {
+                log.error("Batch handler failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private List<T> takeBatch() throws InterruptedException {
+        T first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return List.of();
+        }
+
+        List<T> batch = new ArrayList<>(maxBatchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0 || stopped) {
+                break;
+            }
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * Остановить приём и обработать накопленное в пределах timeout.
+     */
+    public void shutdown(Duration timeout) throws InterruptedException {
+        stopped = true;
+        thread.join(timeout.toMillis());
+        thread.interrupt();
+    }
+}
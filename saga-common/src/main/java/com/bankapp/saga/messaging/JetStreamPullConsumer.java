@@ -0,0 +1,79 @@
+package com.bankapp.saga.messaging;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Цикл чтения durable pull consumer: забирает сообщения пачками до batchSize
+ * и передаёт их обработчику. Подтверждает сообщения сам обработчик - после коммита.
+ *
+ * Сервис сам задаёт темп приёма: новая пачка запрашивается только после обработки предыдущей.
+ */
+@Slf4j
+public class JetStreamPullConsumer {
+
+    private final JetStreamSubscription subscription;
+    private final int batchSize;
+    private final Duration fetchWait;
+    private final Consumer<List<Message>> handler;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    public JetStreamPullConsumer(Connection connection, JetStreamSupport jetStreamSupport,
+                                 String subject, String durable, int batchSize, Duration fetchWait,
+                                 Consumer<List<Message>> handler) throws IOException {
+        jetStreamSupport.ensureStream(connection);
+        try {
+            this.subscription = connection.jetStream().subscribe(subject, jetStreamSupport.pullOptions(durable));
+        } catch (JetStreamApiException e) {
+            throw new IOException("Failed to subscribe durable " + durable + " to " + subject + ": " + e.getMessage(), e);
+        }
+        this.batchSize = batchSize;
+        this.fetchWait = fetchWait;
+        this.handler = handler;
+        this.thread = Thread.ofPlatform().name("jetstream-" + durable).daemon(true).start(this::run);
+        log.info("JetStream pull consumer started: durable={}, subject={}, batch={}", durable, subject, batchSize);
+    }
+
+    private void run() {
+        while (!stopped) {
+            try {
+                List<Message> messages = subscription.fetch(batchSize, fetchWait);
+                if (!messages.isEmpty()) {
+                    handler.accept(messages);
+                }
+            } catch (IllegalStateException e) {
+                // Подписка закрыта вместе с соединением
+                if (!stopped) {
+                    log.error("JetStream subscription is not active: {}", e.getMessage());
+                }
+                return;
+            } catch (Exception e) {
+                log.error("JetStream fetch failed: {}", e.getMessage(), e);
+                sleepQuietly(fetchWait);
+            }
+        }
+    }
+
+    private void sleepQuietly(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+    }
+
+    public void stop(Duration timeout) throws InterruptedException {
+        stopped = true;
+        thread.join(timeout.toMillis());
+    }
+}
@@ -0,0 +1,109 @@
+package com.bankapp.saga.messaging;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamManagement;
+import io.nats.client.PullSubscribeOptions;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
+import io.nats.client.api.DeliverPolicy;
+import io.nats.client.api.StorageType;
+import io.nats.client.api.StreamConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки транспорта Saga сообщений.
+ *
+ * application.saga.transport=core - обычные subject NATS (сообщения без подписчика теряются),
+ * jetstream - поток JetStream с durable pull consumer и явными подтверждениями:
+ * сообщения, отправленные пока слушатель недоступен, доставляются после его запуска.
+ */
+@Component
+@Slf4j
+public class JetStreamSupport {
+
+    /** Код ошибки JetStream API "stream not found". */
+    private static final int STREAM_NOT_FOUND = 10059;
+
+    private final boolean enabled;
+    private final String streamName;
+    private final List<String> subjects;
+    private final StorageType storageType;
+    private final Duration maxAge;
+    private final Duration ackWait;
+    private final long maxDeliver;
+    private final long maxAckPending;
+
+    public JetStreamSupport(@Value("${application.saga.transport:core}") String transport,
+                            @Value("${application.saga.jetstream.stream:SAGA}") String streamName,
+                            @Value("${application.saga.jetstream.subjects:saga.>}") List<String> subjects,
+                            @Value("${application.saga.jetstream.storage:file}") String storage,
+                            @Value("${application.saga.jetstream.max-age:P7D}") Duration maxAge,
+                            @Value("${application.saga.jetstream.ack-wait:PT30s}") Duration ackWait,
+                            @Value("${application.saga.jetstream.max-deliver:10}") long maxDeliver,
+                            @Value("${application.saga.jetstream.max-ack-pending:1000}") long maxAckPending) {
+        this.enabled = "jetstream".equalsIgnoreCase(transport);
+        this.streamName = streamName;
+        this.subjects = subjects;
+        this.storageType = StorageType.get(storage);
+        this.maxAge = maxAge;
+        this.ackWait = ackWait;
+        this.maxDeliver = maxDeliver;
+        this.maxAckPending = maxAckPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Создать поток Saga сообщений, если его ещё нет. Существующий поток не изменяется.
+     */
+    public void ensureStream(Connection connection) throws IOException {
+        try {
+            JetStreamManagement management = connection.jetStreamManagement();
+            try {
+                management.getStreamInfo(streamName);
+                return;
+            } catch (JetStreamApiException e) {
+                if (e.getApiErrorCode() != STREAM_NOT_FOUND) {
+                    throw e;
+                }
+            }
+
+            management.addStream(StreamConfiguration.builder()
+                    .name(streamName)
+                    .subjects(subjects)
+                    .storageType(storageType)
+                    .maxAge(maxAge)
+                    .build());
+            log.info("JetStream stream created: {} {}", streamName, subjects);
+        } catch (JetStreamApiException e) {
+            throw new IOException("Failed to ensure JetStream stream " + streamName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Параметры durable pull consumer с явными подтверждениями.
+     */
+    public PullSubscribeOptions pullOptions(String durable) {
+        return PullSubscribeOptions.builder()
+                .stream(streamName)
+                .durable(durable)
+                .configuration(ConsumerConfiguration.builder()
+                        .durable(durable)
+                        .ackPolicy(AckPolicy.Explicit)
+                        .deliverPolicy(DeliverPolicy.All)
+                        .ackWait(ackWait)
+                        .maxDeliver(maxDeliver)
+                        .maxAckPending(maxAckPending)
+                        .build())
+                .build();
+    }
+}
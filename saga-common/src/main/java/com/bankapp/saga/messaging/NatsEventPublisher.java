@@ -0,0 +1,202 @@
+package com.bankapp.saga.messaging;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStream;
+import io.nats.client.Message;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+import io.nats.client.api.PublishAck;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Долгоживущий издатель Saga событий в NATS.
+ *
+ * Держит одно соединение между запусками OutboxProcessor, отправляет пачку сообщений
+ * без ожидания подтверждений и проверяет доставку одним flush в конце.
+ * Первичное подключение повторяется с экспоненциальной задержкой самим издателем,
+ * переподключение после разрыва выполняет клиент NATS с той же задержкой.
+ *
+ * В режиме JetStream ({@link JetStreamSupport}) пачка отправляется через publishAsync,
+ * и издатель ждёт подтверждения сохранения в потоке для каждого сообщения.
+ */
+@Component
+@Slf4j
+public class NatsEventPublisher implements HealthIndicator {
+
+    private final Options options;
+    private final JetStreamSupport jetStreamSupport;
+    private final Duration flushTimeout;
+    private final Duration reconnectWait;
+    private final Duration maxReconnectWait;
+
+    private final Object connectLock = new Object();
+    private volatile Connection connection;
+    private volatile String lastError;
+    private Duration currentBackoff;
+    private Instant nextConnectAttempt = Instant.MIN;
+    private volatile boolean streamReady;
+
+    public NatsEventPublisher(@Value("${nats.url:nats://localhost:4222}") String natsConnectionUrl,
+                              @Value("${spring.application.name:saga-service}") String applicationName,
+                              @Value("${application.nats.publisher.flush-timeout:PT5s}") Duration flushTimeout,
+                              @Value("${application.nats.publisher.reconnect-wait:PT1s}") Duration reconnectWait,
+                              @Value("${application.nats.publisher.max-reconnect-wait:PT30s}") Duration maxReconnectWait,
+                              JetStreamSupport jetStreamSupport) {
+        this.jetStreamSupport = jetStreamSupport;
+        this.flushTimeout = flushTimeout;
+        this.reconnectWait = reconnectWait;
+        this.maxReconnectWait = maxReconnectWait;
+        this.currentBackoff = reconnectWait;
+        this.options = new Options.Builder()
+                .server(natsConnectionUrl)
+                .connectionName(applicationName + "-outbox-publisher")
+                .maxReconnects(-1)
+                .reconnectDelayHandler(this::backoffForAttempt)
+                .connectionListener((conn, event) -> log.info("NATS publisher connection event: {}", event))
+                .build();
+    }
+
+    /**
+     * Отправить пачку сообщений и дождаться, пока сервер NATS их примет.
+     *
+     * @throws IOException если соединение недоступно (пачка должна остаться в Outbox)
+     * @throws TimeoutException если сервер не подтвердил flush за отведённое время
+     */
+    public void publishBatch(List<Message> messages) throws IOException, TimeoutException, InterruptedException {
+        Connection natsConnection = obtainConnection();
+
+        if (jetStreamSupport.isEnabled()) {
+            publishToStream(natsConnection, messages);
+            return;
+        }
+
+        for (Message message : messages) {
+            natsConnection.publish(message);
+        }
+
+        // Один round trip (PING/PONG) на всю пачку
+        natsConnection.flush(flushTimeout);
+    }
+
+    /**
+     * Отправить пачку в поток JetStream без ожидания между сообщениями
+     * и дождаться всех подтверждений (PublishAck) в пределах flushTimeout.
+     */
+    private void publishToStream(Connection natsConnection, List<Message> messages)
+            throws IOException, TimeoutException, InterruptedException {
+        if (!streamReady) {
+            jetStreamSupport.ensureStream(natsConnection);
+            streamReady = true;
+        }
+
+        JetStream jetStream = natsConnection.jetStream();
+        List<CompletableFuture<PublishAck>> acks = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            acks.add(jetStream.publishAsync(message));
+        }
+
+        try {
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new))
+                    .get(flushTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException("JetStream publish failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public boolean isConnected() {
+        Connection current = connection;
+        return current != null && current.getStatus() == Connection.Status.CONNECTED;
+    }
+
+    @Override
+    public Health health() {
+        Connection current = connection;
+        if (current == null) {
+            return Health.down()
+                    .withDetail("status", "NOT_CONNECTED")
+                    .withDetail("lastError", String.valueOf(lastError))
+                    .build();
+        }
+
+        Connection.Status status = current.getStatus();
+        Health.Builder builder = status == Connection.Status.CONNECTED ? Health.up() : Health.down();
+        return builder
+                .withDetail("status", status)
+                .withDetail("server", String.valueOf(current.getConnectedUrl()))
+                .build();
+    }
+
+    /**
+     * Получить текущее соединение или подключиться заново, если пауза после неудачи истекла.
+     */
+    private Connection obtainConnection() throws IOException, InterruptedException {
+        Connection current = connection;
+        if (current != null && current.getStatus() != Connection.Status.CLOSED) {
+            if (current.getStatus() != Connection.Status.CONNECTED) {
+                // Клиент NATS сам переподключается - не копим сообщения в его буфере
+                throw new IOException("NATS connection is not ready: " + current.getStatus());
+            }
+            return current;
+        }
+
+        synchronized (connectLock) {
+            if (connection != null && connection.getStatus() != Connection.Status.CLOSED) {
+                return connection;
+            }
+
+            Instant now = Instant.now();
+            if (now.isBefore(nextConnectAttempt)) {
+                throw new IOException("NATS is unavailable, next connection attempt at " + nextConnectAttempt);
+            }
+
+            try {
+                connection = Nats.connect(options);
+                currentBackoff = reconnectWait;
+                lastError = null;
+                log.info("NATS publisher connected: {}", connection.getConnectedUrl());
+                return connection;
+            } catch (IOException e) {
+                lastError = e.getMessage();
+                nextConnectAttempt = now.plus(currentBackoff);
+                currentBackoff = min(currentBackoff.multipliedBy(2), maxReconnectWait);
+                log.error("NATS connection failed: {}, retry after {}", e.getMessage(), nextConnectAttempt);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Экспоненциальная задержка переподключения: reconnectWait * 2^(n-1), но не больше maxReconnectWait.
+     */
+    private Duration backoffForAttempt(long attempt) {
+        int shift = (int) Math.min(Math.max(attempt - 1, 0), 16);
+        return min(reconnectWait.multipliedBy(1L << shift), maxReconnectWait);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        Connection current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.bankapp.saga.messaging;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.MessageHandler;
+import io.nats.client.Nats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подписка слушателя Saga на топики в выбранном транспорте ({@link JetStreamSupport}).
+ *
+ * core - Dispatcher на обычные subject NATS; jetstream - durable pull consumer
+ * на каждый топик, сообщения читаются пачками до fetch-batch. Подтверждает сообщения
+ * обработчик (message.ack() при message.isJetStream()), после коммита обработки.
+ *
+ * Остановка в два шага: {@link #stopReceiving()} прекращает приём, {@link #close()}
+ * закрывает соединение - между ними слушатель дообрабатывает и подтверждает принятое.
+ */
+@Slf4j
+public class SagaSubscriber {
+
+    private final Connection connection;
+    private final JetStreamSupport jetStreamSupport;
+    private final int fetchBatch;
+    private final Duration fetchWait;
+    private final List<JetStreamPullConsumer> pullConsumers = new ArrayList<>();
+    private Dispatcher dispatcher;
+
+    public SagaSubscriber(String natsConnectionUrl, JetStreamSupport jetStreamSupport,
+                          int fetchBatch, Duration fetchWait) throws IOException, InterruptedException {
+        this.connection = Nats.connect(natsConnectionUrl);
+        this.jetStreamSupport = jetStreamSupport;
+        this.fetchBatch = fetchBatch;
+        this.fetchWait = fetchWait;
+    }
+
+    public boolean isJetStream() {
+        return jetStreamSupport.isEnabled();
+    }
+
+    /**
+     * Подписаться на топик; durable - имя consumer в режиме JetStream.
+     */
+    public void subscribe(String subject, String durable, MessageHandler handler) throws IOException {
+        if (jetStreamSupport.isEnabled()) {
+            // Durable pull consumer: сообщения ждут в потоке, пока сервис недоступен
+            pullConsumers.add(new JetStreamPullConsumer(connection, jetStreamSupport, subject, durable,
+                    fetchBatch, fetchWait, messages -> messages.forEach(message -> {
+                        try {
+                            handler.onMessage(message);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    })));
+        } else {
+            if (dispatcher == null) {
+                dispatcher = connection.createDispatcher();
+            }
+            dispatcher.subscribe(subject, handler);
+        }
+        log.info("Subscribed to {} ({})", subject, jetStreamSupport.isEnabled() ? "jetstream" : "core");
+    }
+
+    /**
+     * Прекратить приём новых сообщений.
+     */
+    public void stopReceiving() throws InterruptedException {
+        for (JetStreamPullConsumer pullConsumer : pullConsumers) {
+            pullConsumer.stop(Duration.ofSeconds(5));
+        }
+        if (dispatcher != null) {
+            connection.closeDispatcher(dispatcher);
+            dispatcher = null;
+        }
+    }
+
+    public void close() throws InterruptedException {
+        connection.close();
+    }
+}
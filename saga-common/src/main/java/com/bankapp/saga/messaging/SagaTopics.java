@@ -0,0 +1,38 @@
+package com.bankapp.saga.messaging;
+
+import com.bankapp.saga.event.SagaEventType;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Топики NATS для Saga событий (application.saga.topics.*).
+ */
+@Component
+@Getter
+public class SagaTopics {
+
+    private final String balanceUpdateRequested;
+    private final String balanceUpdated;
+    private final String balanceUpdateFailed;
+
+    public SagaTopics(
+            @Value("${application.saga.topics.balance-update-requested:saga.balance.update.requested}") String balanceUpdateRequested,
+            @Value("${application.saga.topics.balance-updated:saga.balance.updated}") String balanceUpdated,
+            @Value("${application.saga.topics.balance-update-failed:saga.balance.update.failed}") String balanceUpdateFailed) {
+        this.balanceUpdateRequested = balanceUpdateRequested;
+        this.balanceUpdated = balanceUpdated;
+        this.balanceUpdateFailed = balanceUpdateFailed;
+    }
+
+    /**
+     * Топик для типа события.
+     */
+    public String topicFor(SagaEventType eventType) {
+        return switch (eventType) {
+            case SAGA_BALANCE_UPDATE_REQUESTED -> balanceUpdateRequested;
+            case SAGA_BALANCE_UPDATED -> balanceUpdated;
+            case SAGA_BALANCE_UPDATE_FAILED -> balanceUpdateFailed;
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.bankapp.saga.outbox;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Адаптивный размер пачки Outbox в пределах [min, max]: уменьшается вдвое,
+ * когда публикация медленнее целевой задержки, и удваивается, пока пачки
+ * возвращаются полными. Общий для всех обработчиков.
+ */
+class AdaptiveBatchSize {
+
+    private final int min;
+    private final int max;
+    private final long targetLatencyNanos;
+    private final AtomicInteger size;
+
+    AdaptiveBatchSize(int min, int max, Duration targetLatency) {
+        this.min = min;
+        this.max = Math.max(min, max);
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.size = new AtomicInteger(min);
+    }
+
+    int get() {
+        return size.get();
+    }
+
+    int max() {
+        return max;
+    }
+
+    /**
+     * Учесть результат пачки размера usedSize.
+     *
+     * @return размер пачки после корректировки
+     */
+    int adjust(int usedSize, int published, long publishNanos) {
+        if (publishNanos > targetLatencyNanos) {
+            return size.updateAndGet(current -> Math.max(min, Math.min(current, usedSize / 2)));
+        }
+        if (published >= usedSize && usedSize < max) {
+            // compareAndSet: несколько обработчиков не должны удваивать размер одновременно
+            size.compareAndSet(usedSize, Math.min(max, usedSize * 2));
+        }
+        return size.get();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bankapp.saga.outbox;
+
+/**
+ * Скорость отправки событий Outbox по скользящему окну в несколько секунд.
+ */
+class DrainRateMeter {
+
+    private final int windowSeconds;
+    private final long[] counts;
+    private final long[] seconds;
+    private long total;
+
+    DrainRateMeter(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.counts = new long[windowSeconds];
+        this.seconds = new long[windowSeconds];
+    }
+
+    synchronized void record(long events) {
+        long now = System.currentTimeMillis() / 1000;
+        int bucket = (int) (now % windowSeconds);
+        if (seconds[bucket] != now) {
+            seconds[bucket] = now;
+            counts[bucket] = 0;
+        }
+        counts[bucket] += events;
+        total += events;
+    }
+
+    /**
+     * Событий в секунду в среднем за окно.
+     */
+    synchronized double ratePerSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long sum = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            if (now - seconds[i] < windowSeconds) {
+                sum += counts[i];
+            }
+        }
+        return (double) sum / windowSeconds;
+    }
+
+    synchronized long total() {
+        return total;
+    }
+}
@@ -0,0 +1,53 @@
+package com.bankapp.saga.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Фоновая очистка Outbox в режиме application.outbox.mark-processed.
+ *
+ * Удаляет помеченные события старше retention небольшими пачками,
+ * чтобы не держать долгих блокировок на таблице outbox_events.
+ */
+@Component
+@ConditionalOnProperty(name = "application.outbox.mark-processed", havingValue = "true")
+@Slf4j
+public class OutboxCompactor {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxProcessor outboxProcessor;
+    private final Duration retention;
+    private final int batchSize;
+
+    public OutboxCompactor(OutboxEventRepository outboxEventRepository,
+                           OutboxProcessor outboxProcessor,
+                           @Value("${application.outbox.compaction.retention:PT1h}") Duration retention,
+                           @Value("${application.outbox.compaction.batch-size:1000}") int batchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxProcessor = outboxProcessor;
+        this.retention = retention;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.compaction.interval:PT1m}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = outboxEventRepository.deleteProcessedBefore(
+                    outboxProcessor.getEventTypes(), cutoff, batchSize);
+            total += deleted;
+        } while (deleted >= batchSize);
+
+        if (total > 0) {
+            log.info("Compacted {} processed outbox events older than {}", total, cutoff);
+        }
+    }
+}
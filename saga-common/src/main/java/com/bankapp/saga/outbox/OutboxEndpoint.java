@@ -0,0 +1,30 @@
+package com.bankapp.saga.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Состояние Outbox: /actuator/outbox.
+ */
+@Component
+@Endpoint(id = "outbox")
+@RequiredArgsConstructor
+public class OutboxEndpoint {
+
+    private final OutboxProcessor outboxProcessor;
+
+    @ReadOperation
+    public Map<String, Object> outbox() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("backlog", outboxProcessor.getBacklogSize());
+        state.put("drainRatePerSecond", outboxProcessor.getDrainRate());
+        state.put("batchSize", outboxProcessor.getBatchSize());
+        state.put("publishedTotal", outboxProcessor.getPublishedTotal());
+        return state;
+    }
+}
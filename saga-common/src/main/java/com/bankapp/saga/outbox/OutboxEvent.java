@@ -0,0 +1,91 @@
+package com.bankapp.saga.outbox;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Entity для реализации Transactional Outbox Pattern.
+ * Обеспечивает гарантированную доставку Saga событий через NATS.
+ */
+@Entity
+@Table(name = "outbox_events", schema = "outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+    
+    /**
+     * Агрегат Saga событий - пользователь (aggregateId = login).
+     */
+    public static final String AGGREGATE_TYPE_USER = "USER";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * Тип и идентификатор агрегата: события одного агрегата отправляются строго по порядку.
+     */
+    @Column(name = "aggregate_type", length = 50)
+    private String aggregateType;
+    
+    @Column(name = "aggregate_id", length = 100)
+    private String aggregateId;
+    
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+    
+    /**
+     * JSON строка - только у событий, записанных до появления payload_bytes.
+     */
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+    
+    /**
+     * Закодированное событие и его формат (заголовок Content-Type сообщения NATS).
+     */
+    @Column(name = "payload_bytes")
+    private byte[] payloadBytes;
+    
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+    
+    /**
+     * Контекст трассировки (W3C traceparent), в котором событие было записано:
+     * отправляется заголовком сообщения, получатель продолжает ту же трассу.
+     */
+    @Column(name = "trace_context", length = 128)
+    private String traceContext;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    /**
+     * Событие отправлено (режим application.outbox.mark-processed, иначе строка удаляется).
+     */
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean processed = false;
+    
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+    
+    /**
+     * Тело сообщения для NATS.
+     */
+    public byte[] getPayloadData() {
+        return payloadBytes != null ? payloadBytes : payload.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
+
+
@@ -0,0 +1,89 @@
+package com.bankapp.saga.outbox;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    
+    /**
+     * Захватить партицию Outbox до конца текущей транзакции.
+     *
+     * Партицию в каждый момент обрабатывает один обработчик во всём кластере,
+     * поэтому события одного агрегата не отправляются параллельно и не переупорядочиваются.
+     *
+     * @return false, если партицию уже обрабатывает другой поток или реплика
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext(:lockName), :partition)", nativeQuery = true)
+    boolean tryLockPartition(@Param("lockName") String lockName, @Param("partition") int partition);
+
+    /**
+     * Захватить пачку событий партиции для обработки (FIFO по порядку вставки).
+     *
+     * Партиция определяется хешем aggregate_id. FOR UPDATE SKIP LOCKED дополнительно
+     * защищает от повторной отправки, если блокировка партиции не была взята.
+     * Таблица outbox.outbox_events общая для сервисов - берём только свои типы событий.
+     */
+    @Query(value = """
+            SELECT * FROM outbox.outbox_events
+            WHERE processed = false AND event_type IN (:eventTypes)
+              AND abs(hashtext(coalesce(aggregate_id, ''))::bigint) % :partitions = :partition
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> claimBatch(@Param("eventTypes") Collection<String> eventTypes,
+                                 @Param("partitions") int partitions,
+                                 @Param("partition") int partition,
+                                 @Param("limit") int limit);
+
+    /**
+     * Размер очереди неотправленных событий указанных типов.
+     */
+    long countByEventTypeInAndProcessedFalse(Collection<String> eventTypes);
+
+    /**
+     * Время создания самого старого неотправленного события указанных типов.
+     */
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.processed = false AND e.eventType IN :eventTypes")
+    Optional<LocalDateTime> findOldestPendingCreatedAt(@Param("eventTypes") Collection<String> eventTypes);
+
+    /**
+     * Удалить отправленные события одним запросом (deleteAllById удаляет построчно).
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Пометить события отправленными одним запросом; строки удалит OutboxCompactor.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.processed = true, e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * Удалить не более limit помеченных событий, отправленных раньше cutoff.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM outbox.outbox_events
+            WHERE id IN (
+                SELECT id FROM outbox.outbox_events
+                WHERE processed = true AND processed_at < :cutoff AND event_type IN (:eventTypes)
+                LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteProcessedBefore(@Param("eventTypes") Collection<String> eventTypes,
+                              @Param("cutoff") LocalDateTime cutoff,
+                              @Param("limit") int limit);
+}
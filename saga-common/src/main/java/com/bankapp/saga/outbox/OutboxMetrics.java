@@ -0,0 +1,65 @@
+package com.bankapp.saga.outbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики очереди Outbox этого сервиса.
+ *
+ * Размер и возраст очереди требуют запросов к БД, поэтому считаются по расписанию
+ * (application.outbox.metrics.sample-interval), а не при каждом чтении метрики:
+ * outbox.backlog.size - неотправленные события, outbox.backlog.age - возраст самого
+ * старого из них (0, если очередь пуста). Текущий размер пачки и скорость отправки
+ * берутся из {@link OutboxProcessor} без обращения к БД.
+ */
+@Component
+@Slf4j
+public class OutboxMetrics {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxProcessor outboxProcessor;
+    private final AtomicLong backlogSize = new AtomicLong();
+    private final AtomicLong backlogAgeMillis = new AtomicLong();
+
+    public OutboxMetrics(OutboxEventRepository outboxEventRepository,
+                         OutboxProcessor outboxProcessor,
+                         MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxProcessor = outboxProcessor;
+
+        Gauge.builder("outbox.backlog.size", backlogSize, AtomicLong::get)
+                .description("Unpublished outbox events of this service")
+                .baseUnit("events")
+                .register(meterRegistry);
+        Gauge.builder("outbox.backlog.age", backlogAgeMillis, age -> age.get() / 1000.0)
+                .description("Age of the oldest unpublished outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("outbox.batch.size.current", outboxProcessor, OutboxProcessor::getBatchSize)
+                .description("Current adaptive outbox batch size")
+                .register(meterRegistry);
+        Gauge.builder("outbox.drain.rate", outboxProcessor, OutboxProcessor::getDrainRate)
+                .description("Published outbox events per second over the last seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.metrics.sample-interval:PT15s}")
+    public void sample() {
+        try {
+            backlogSize.set(outboxProcessor.getBacklogSize());
+            backlogAgeMillis.set(outboxEventRepository.findOldestPendingCreatedAt(outboxProcessor.getEventTypes())
+                    .map(oldest -> Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()))
+                    .orElse(0L));
+        } catch (Exception e) {
+            // Метрики не должны мешать работе; старые значения остаются до следующей попытки
+            log.warn("Failed to sample outbox metrics: {}", e.getMessage());
+        }
+    }
+}
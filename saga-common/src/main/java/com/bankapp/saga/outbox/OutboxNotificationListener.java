@@ -0,0 +1,116 @@
+package com.bankapp.saga.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Слушатель Postgres LISTEN/NOTIFY для таблицы outbox_events.
+ *
+ * Триггер в init-db.sql вызывает pg_notify при вставке события, уведомление приходит
+ * после коммита транзакции, и OutboxProcessor запускается сразу, не дожидаясь опроса.
+ * Использует отдельное JDBC соединение вне пула, т.к. держит его всё время работы.
+ */
+@Component
+@ConditionalOnProperty(name = "application.outbox.notify.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxNotificationListener {
+
+    private final OutboxProcessor outboxProcessor;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+    private final Duration reconnectDelay;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public OutboxNotificationListener(OutboxProcessor outboxProcessor,
+                                      @Value("${spring.datasource.url}") String url,
+                                      @Value("${spring.datasource.username}") String username,
+                                      @Value("${spring.datasource.password}") String password,
+                                      @Value("${application.outbox.notify.channel:outbox_events}") String channel,
+                                      @Value("${application.outbox.notify.reconnect-delay:PT5s}") Duration reconnectDelay) {
+        this.outboxProcessor = outboxProcessor;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "outbox-notify-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.info("Listening for outbox notifications on channel: {}", channel);
+
+                // События могли появиться, пока мы не слушали канал
+                outboxProcessor.wakeUp();
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null && isRelevant(notifications)) {
+                        outboxProcessor.wakeUp();
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Outbox notification listener failed: {}, reconnecting in {}",
+                        e.getMessage(), reconnectDelay);
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Payload уведомления - тип события; реагируем только на события, которые отправляет этот сервис.
+     */
+    private boolean isRelevant(PGNotification[] notifications) {
+        for (PGNotification notification : notifications) {
+            if (outboxProcessor.handles(notification.getParameter())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread.join(2000);
+        }
+    }
+}
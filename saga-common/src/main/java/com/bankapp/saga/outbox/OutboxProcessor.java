@@ -0,0 +1,359 @@
+package com.bankapp.saga.outbox;
+
+import com.bankapp.saga.codec.SagaEventCodec;
+import com.bankapp.saga.event.SagaEventType;
+import com.bankapp.saga.messaging.NatsEventPublisher;
+import com.bankapp.saga.messaging.SagaTopics;
+import com.bankapp.saga.tracing.SagaTracing;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обработчик Transactional Outbox Pattern.
+ *
+ * Отправляет Saga события из таблицы outbox_events в NATS через долгоживущее
+ * соединение {@link NatsEventPublisher}. Обработка запускается сразу по сигналу
+ * {@link OutboxNotificationListener} (Postgres NOTIFY), а периодический опрос
+ * остаётся страховкой на случай потерянных уведомлений.
+ *
+ * События разбиты на партиции по хешу aggregate_id (логин пользователя). Обработчики
+ * (потоки и реплики) захватывают партицию advisory-блокировкой и её пачку через
+ * SELECT ... FOR UPDATE SKIP LOCKED: события разных пользователей отправляются
+ * параллельно, а события одного пользователя - строго по порядку. Пачка отправляется
+ * и удаляется (или помечается отправленной) одним запросом в той же транзакции.
+ *
+ * Размер пачки адаптивный ({@link AdaptiveBatchSize}): растёт до application.outbox.max-limit,
+ * пока пачки возвращаются полными, и уменьшается, когда публикация в NATS замедляется.
+ * Обработчик продолжает цикл, пока очередь не опустеет.
+ *
+ * Таблица outbox_events общая для сервисов: каждый отправляет только свои типы событий
+ * (application.outbox.event-types), топик определяется по типу через {@link SagaTopics}.
+ *
+ * Метрики: outbox.publish (время отправки пачки по исходу), outbox.publish.batch.size;
+ * размер и возраст очереди - {@link OutboxMetrics}.
+ */
+@Service
+@Slf4j
+public class OutboxProcessor {
+
+    private static final String MESSAGE_ID_HEADER = "Nats-Msg-Id";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final NatsEventPublisher natsEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final SagaTopics sagaTopics;
+    private final List<String> eventTypes;
+    private final boolean markProcessed;
+    private final int partitions;
+    private final String partitionLockName;
+    private final String messageIdPrefix;
+
+    private final AdaptiveBatchSize batchSize;
+    private final DrainRateMeter drainRateMeter = new DrainRateMeter(10);
+    private final Timer publishSuccessTimer;
+    private final Timer publishFailureTimer;
+    private final DistributionSummary publishBatchSize;
+
+    private final ExecutorService relayExecutor;
+    private final List<RelayWorker> workers = new ArrayList<>();
+
+    public OutboxProcessor(OutboxEventRepository outboxEventRepository,
+                          NatsEventPublisher natsEventPublisher,
+                          TransactionTemplate transactionTemplate,
+                          SagaTopics sagaTopics,
+                          MeterRegistry meterRegistry,
+                          @Value("${application.outbox.event-types}") List<SagaEventType> eventTypes,
+                          @Value("${application.outbox.limit:10}") int limit,
+                          @Value("${application.outbox.max-limit:500}") int maxLimit,
+                          @Value("${application.outbox.target-publish-latency:PT0.2s}") Duration targetPublishLatency,
+                          @Value("${application.outbox.workers:1}") int workerCount,
+                          @Value("${application.outbox.mark-processed:false}") boolean markProcessed,
+                          @Value("${application.outbox.partitions:16}") int partitions,
+                          @Value("${spring.application.name}") String applicationName) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.natsEventPublisher = natsEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.sagaTopics = sagaTopics;
+        this.eventTypes = eventTypes.stream().map(SagaEventType::name).toList();
+        this.markProcessed = markProcessed;
+        this.partitions = partitions;
+        this.partitionLockName = "outbox-relay:" + applicationName;
+        this.messageIdPrefix = "outbox-" + applicationName + "-";
+        this.batchSize = new AdaptiveBatchSize(limit, maxLimit, targetPublishLatency);
+        this.publishSuccessTimer = publishTimer(meterRegistry, "success");
+        this.publishFailureTimer = publishTimer(meterRegistry, "failure");
+        this.publishBatchSize = DistributionSummary.builder("outbox.publish.batch.size")
+                .description("Events per published outbox batch")
+                .baseUnit("events")
+                .register(meterRegistry);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.relayExecutor = Executors.newFixedThreadPool(workerCount,
+                runnable -> new Thread(runnable, "outbox-relay-" + threadNumber.incrementAndGet()));
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new RelayWorker(ownedPartitions(i, workerCount, partitions)));
+        }
+        if (workerCount > partitions) {
+            log.warn("Outbox workers ({}) exceed partitions ({}), extra workers stay idle", workerCount, partitions);
+        }
+        log.info("Outbox relay started for {} with {} workers, {} partitions, batch size {}..{}",
+                this.eventTypes, workerCount, partitions, limit, batchSize.max());
+    }
+
+    /**
+     * Партиции обработчика worker: партиция p закреплена за обработчиком p % workerCount.
+     */
+    static List<Integer> ownedPartitions(int worker, int workerCount, int partitions) {
+        List<Integer> owned = new ArrayList<>();
+        for (int partition = worker; partition < partitions; partition += workerCount) {
+            owned.add(partition);
+        }
+        return owned;
+    }
+
+    /**
+     * Страховочный опрос таблицы Outbox (основной путь - уведомления NOTIFY).
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.poll-interval:PT1s}")
+    public void process() {
+        wakeUp();
+    }
+
+    /**
+     * Запросить обработку Outbox всеми обработчиками. Не блокирует вызывающий поток.
+     */
+    public void wakeUp() {
+        workers.forEach(RelayWorker::wakeUp);
+    }
+
+    /**
+     * Отправляет ли этот сервис события данного типа.
+     */
+    public boolean handles(String eventType) {
+        return eventTypes.contains(eventType);
+    }
+
+    /**
+     * Типы событий, которые отправляет этот сервис.
+     */
+    public List<String> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Количество неотправленных событий этого сервиса.
+     */
+    public long getBacklogSize() {
+        return outboxEventRepository.countByEventTypeInAndProcessedFalse(eventTypes);
+    }
+
+    /**
+     * Скорость отправки событий (событий в секунду) за последние секунды.
+     */
+    public double getDrainRate() {
+        return drainRateMeter.ratePerSecond();
+    }
+
+    public int getBatchSize() {
+        return batchSize.get();
+    }
+
+    public long getPublishedTotal() {
+        return drainRateMeter.total();
+    }
+
+    /**
+     * Захватить, отправить и удалить (пометить) одну пачку событий партиции в одной транзакции.
+     *
+     * @return true, если пачка была полной и в партиции, вероятно, остались события
+     */
+    private boolean processBatch(int partition) {
+        int size = batchSize.get();
+        Integer published = transactionTemplate.execute(status -> publishClaimedBatch(status, partition, size));
+        return published != null && published >= size;
+    }
+
+    private int publishClaimedBatch(TransactionStatus status, int partition, int size) {
+        // Партицию уже обрабатывает другой поток или реплика
+        if (!outboxEventRepository.tryLockPartition(partitionLockName, partition)) {
+            return 0;
+        }
+
+        List<OutboxEvent> outboxEntries = outboxEventRepository
+                .claimBatch(eventTypes, partitions, partition, size);
+
+        if (outboxEntries.isEmpty()) {
+            return 0;
+        }
+
+        log.info("Processing {} outbox events from partition {}", outboxEntries.size(), partition);
+
+        List<Long> processedIds = new ArrayList<>();
+        List<Message> messages = new ArrayList<>();
+
+        for (OutboxEvent event : outboxEntries) {
+            // Определить топик по типу события
+            String topic = getTopicForEventType(event.getEventType());
+
+            // Nats-Msg-Id: JetStream отбрасывает повторную отправку того же события (retry после сбоя)
+            Headers headers = new Headers()
+                    .put(MESSAGE_ID_HEADER, messageIdPrefix + event.getId())
+                    .put(SagaEventCodec.CONTENT_TYPE_HEADER, event.getContentType() != null
+                            ? event.getContentType()
+                            : SagaEventCodec.CONTENT_TYPE_JSON);
+            // traceparent: слушатель продолжает трассу операции, записавшей событие
+            SagaTracing.inject(event.getTraceContext(), headers);
+            messages.add(NatsMessage.builder()
+                    .subject(topic)
+                    .headers(headers)
+                    .data(event.getPayloadData())
+                    .build());
+            processedIds.add(event.getId());
+
+            log.debug("Queued event for NATS: id={}, type={}, topic={}",
+                    event.getId(), event.getEventType(), topic);
+        }
+
+        // Отправляем всю пачку через постоянное соединение и подтверждаем одним flush
+        long publishStarted = System.nanoTime();
+        try {
+            natsEventPublisher.publishBatch(messages);
+        } catch (IOException | TimeoutException e) {
+            // NATS недоступен или не подтвердил пачку - откатываем захват, события останутся для retry
+            publishFailureTimer.record(System.nanoTime() - publishStarted, TimeUnit.NANOSECONDS);
+            log.error("Failed to publish {} outbox events to NATS: {}", messages.size(), e.getMessage());
+            status.setRollbackOnly();
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status.setRollbackOnly();
+            return 0;
+        }
+
+        // Удаляем отправленные события; при ошибке коммита они будут переотправлены
+        // (безопасно благодаря идемпотентности, но указывает на проблему с БД)
+        long publishNanos = System.nanoTime() - publishStarted;
+        publishSuccessTimer.record(publishNanos, TimeUnit.NANOSECONDS);
+        publishBatchSize.record(messages.size());
+        if (markProcessed) {
+            outboxEventRepository.markProcessed(processedIds, LocalDateTime.now());
+            log.info("Marked {} outbox events as processed", processedIds.size());
+        } else {
+            outboxEventRepository.deleteByIds(processedIds);
+            log.info("Deleted {} processed outbox events", processedIds.size());
+        }
+
+        drainRateMeter.record(processedIds.size());
+        adjustBatchSize(size, processedIds.size(), publishNanos);
+        return processedIds.size();
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("outbox.publish")
+                .description("Time to publish an outbox batch to NATS and get it confirmed")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Уменьшить пачку вдвое при медленной публикации, удвоить - если пачка вернулась полной.
+     */
+    private void adjustBatchSize(int usedSize, int published, long publishNanos) {
+        int adjusted = batchSize.adjust(usedSize, published, publishNanos);
+        if (adjusted < usedSize) {
+            log.debug("Outbox publish took {} ms, batch size reduced to {}", publishNanos / 1_000_000, adjusted);
+        } else if (adjusted > usedSize) {
+            log.debug("Outbox batch was full, batch size increased to {}", adjusted);
+        }
+    }
+
+    /**
+     * Определить топик NATS для типа события.
+     */
+    private String getTopicForEventType(String eventType) {
+        return sagaTopics.topicFor(SagaEventType.valueOf(eventType));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        relayExecutor.shutdownNow();
+    }
+
+    /**
+     * Обработчик своих партиций Outbox: сигналы, пришедшие во время обработки,
+     * схлопываются в один повтор.
+     */
+    private final class RelayWorker {
+
+        private final List<Integer> ownPartitions;
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+        RelayWorker(List<Integer> ownPartitions) {
+            this.ownPartitions = ownPartitions;
+        }
+
+        void wakeUp() {
+            drainRequested.set(true);
+            if (drainScheduled.compareAndSet(false, true)) {
+                relayExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (drainRequested.getAndSet(false)) {
+                    for (int partition : ownPartitions) {
+                        drainPartition(partition);
+                    }
+                }
+            } finally {
+                drainScheduled.set(false);
+            }
+
+            // Сигнал мог прийти между последней проверкой и сбросом флага
+            if (drainRequested.get()) {
+                wakeUp();
+            }
+        }
+
+        /**
+         * Обрабатываем пачки партиции, пока она не опустеет (пачка вернулась неполной).
+         */
+        private void drainPartition(int partition) {
+            try {
+                boolean backlogRemaining;
+                do {
+                    backlogRemaining = processBatch(partition);
+                } while (backlogRemaining);
+            } catch (Exception e) {
+                // Ошибка БД при захвате или удалении пачки - незакоммиченные события будут переотправлены
+                log.error("Outbox processing failed (events will be redelivered): {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bankapp.saga.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Последние завершённые span в памяти (ограниченный буфер), для endpoint /actuator/spans.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+    private final Deque<SpanRecord> spans = new ArrayDeque<>();
+
+    public InMemorySpanExporter(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> exported) {
+        for (SpanData span : exported) {
+            if (spans.size() >= capacity) {
+                spans.removeFirst();
+            }
+            spans.addLast(SpanRecord.of(span));
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Последние limit span, новые первыми.
+     */
+    public synchronized List<SpanRecord> recent(int limit) {
+        List<SpanRecord> result = new ArrayList<>(Math.min(limit, spans.size()));
+        var iterator = spans.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * Span одной трассы в порядке начала.
+     */
+    public synchronized List<SpanRecord> trace(String traceId) {
+        return spans.stream()
+                .filter(span -> span.traceId().equals(traceId))
+                .sorted(Comparator.comparing(SpanRecord::startEpochMicros))
+                .toList();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        spans.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+}
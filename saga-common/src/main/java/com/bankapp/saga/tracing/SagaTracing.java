@@ -0,0 +1,84 @@
+package com.bankapp.saga.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Перенос контекста трассировки через Outbox и NATS.
+ *
+ * Отправитель сохраняет W3C traceparent текущего span в outbox_events.trace_context,
+ * OutboxProcessor передаёт его заголовком сообщения, слушатель начинает span
+ * получения как продолжение той же трассы. Так одна операция (HTTP запрос, обе
+ * таблицы Outbox и оба топика NATS) видна одной трассой.
+ *
+ * Без трассировки в контексте (management.tracing.enabled=false) используется
+ * Tracer.NOOP: контекст не сохраняется, span не создаются.
+ */
+@Component
+public class SagaTracing {
+
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public SagaTracing(ObjectProvider<Tracer> tracer, ObjectProvider<Propagator> propagator) {
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+        this.propagator = propagator.getIfAvailable(() -> Propagator.NOOP);
+    }
+
+    /**
+     * traceparent текущего span или null, если трассы нет.
+     */
+    public String currentTraceContext() {
+        Span span = tracer.currentSpan();
+        if (span == null || span.isNoop()) {
+            return null;
+        }
+        Map<String, String> carrier = new HashMap<>();
+        propagator.inject(span.context(), carrier, Map::put);
+        return carrier.get(TRACEPARENT_HEADER);
+    }
+
+    /**
+     * Добавить сохранённый контекст в заголовки сообщения.
+     */
+    public static void inject(String traceContext, Headers headers) {
+        if (traceContext != null) {
+            headers.put(TRACEPARENT_HEADER, traceContext);
+        }
+    }
+
+    /**
+     * Начать span получения сообщения - продолжение трассы отправителя
+     * (или новую трассу, если заголовка нет).
+     */
+    public Span startReceiveSpan(Message message) {
+        return propagator.extract(message, SagaTracing::header)
+                .name("saga receive " + message.getSubject())
+                .kind(Span.Kind.CONSUMER)
+                .tag("messaging.system", "nats")
+                .tag("messaging.destination.name", message.getSubject())
+                .start();
+    }
+
+    /**
+     * Сделать span текущим (логи получают traceId, новые события Outbox - его контекст).
+     */
+    public Tracer.SpanInScope inScope(Span span) {
+        return tracer.withSpan(span);
+    }
+
+    private static String header(Message message, String key) {
+        Headers headers = message.getHeaders();
+        return headers != null ? headers.getFirst(key) : null;
+    }
+}
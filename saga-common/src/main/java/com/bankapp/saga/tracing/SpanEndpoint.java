@@ -0,0 +1,31 @@
+package com.bankapp.saga.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Последние span сервиса: /actuator/spans, одна трасса: /actuator/spans/{traceId}.
+ */
+@Endpoint(id = "spans")
+@RequiredArgsConstructor
+public class SpanEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final InMemorySpanExporter exporter;
+
+    @ReadOperation
+    public List<SpanRecord> recent(@Nullable Integer limit) {
+        return exporter.recent(limit != null ? limit : DEFAULT_LIMIT);
+    }
+
+    @ReadOperation
+    public List<SpanRecord> trace(@Selector String traceId) {
+        return exporter.trace(traceId);
+    }
+}
@@ -0,0 +1,45 @@
+package com.bankapp.saga.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Куда отправлять завершённые span: application.tracing.exporter.
+ *
+ * memory - последние span в памяти, /actuator/spans (по умолчанию);
+ * file - JSON Lines в application.tracing.file;
+ * none - span создаются (traceId в логах, traceparent в NATS), но не сохраняются.
+ *
+ * Spring Boot подключает найденные SpanExporter к OpenTelemetry SDK сам.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SpanExportConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "application.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+    public InMemorySpanExporter inMemorySpanExporter(
+            @Value("${application.tracing.memory-capacity:10000}") int capacity) {
+        return new InMemorySpanExporter(capacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+    public SpanEndpoint spanEndpoint(InMemorySpanExporter inMemorySpanExporter) {
+        return new SpanEndpoint(inMemorySpanExporter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.tracing.exporter", havingValue = "file")
+    public SpanExporter fileSpanExporter(
+            @Value("${application.tracing.file:traces/spans.jsonl}") Path file,
+            ObjectMapper objectMapper) throws IOException {
+        return new FileSpanExporter(objectMapper, file);
+    }
+}
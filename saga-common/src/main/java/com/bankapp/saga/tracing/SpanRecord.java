@@ -0,0 +1,45 @@
+package com.bankapp.saga.tracing;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Завершённый span в виде, удобном для файла и endpoint.
+ */
+public record SpanRecord(String traceId,
+                         String spanId,
+                         String parentSpanId,
+                         String service,
+                         String name,
+                         String kind,
+                         long startEpochMicros,
+                         long durationMicros,
+                         String status,
+                         Map<String, String> attributes) {
+
+    public static SpanRecord of(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        String parentSpanId = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+        String service = span.getResource().getAttributes().asMap().entrySet().stream()
+                .filter(entry -> entry.getKey().getKey().equals("service.name"))
+                .map(entry -> String.valueOf(entry.getValue()))
+                .findFirst()
+                .orElse(null);
+
+        return new SpanRecord(
+                span.getTraceId(),
+                span.getSpanId(),
+                parentSpanId,
+                service,
+                span.getName(),
+                span.getKind().name(),
+                TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()),
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                span.getStatus().getStatusCode().name(),
+                attributes);
+    }
+}
@@ -0,0 +1,142 @@
+package com.bankapp.saga.codec;
+
+import com.bankapp.saga.event.BalanceUpdateFailedEvent;
+import com.bankapp.saga.event.BalanceUpdateRequestedEvent;
+import com.bankapp.saga.event.BalanceUpdatedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Двоичный формат {@link SagaEventCodec}: round trip всех событий и отказ на повреждённых данных.
+ */
+class SagaEventCodecTest {
+
+    private final SagaEventCodec codec = new SagaEventCodec(new ObjectMapper(), "binary");
+
+    @ParameterizedTest
+    @ValueSource(longs = {0L, 1L, -1L, 63L, -64L, 1_000_000_007L, Long.MAX_VALUE, Long.MIN_VALUE})
+    void roundTripsBalanceUpdateRequested(long operationId) throws IOException {
+        BalanceUpdateRequestedEvent event = BalanceUpdateRequestedEvent.builder()
+                .sagaId("saga-1")
+                .operationId(operationId)
+                .login("иван")
+                .currency("RUB")
+                .amount(new BigDecimal("1234.50"))
+                .operationType("DEPOSIT")
+                .build();
+
+        assertThat(roundTrip(event, BalanceUpdateRequestedEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void roundTripsBalanceUpdated() throws IOException {
+        BalanceUpdatedEvent event = BalanceUpdatedEvent.builder()
+                .sagaId("saga-2")
+                .operationId(42L)
+                .login("user")
+                .currency("USD")
+                .newBalance(new BigDecimal("-0.01"))
+                .build();
+
+        assertThat(roundTrip(event, BalanceUpdatedEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void roundTripsBalanceUpdateFailed() throws IOException {
+        BalanceUpdateFailedEvent event = BalanceUpdateFailedEvent.builder()
+                .sagaId("saga-3")
+                .operationId(7L)
+                .login("user")
+                .errorMessage("Недостаточно средств")
+                .errorCode("INSUFFICIENT_FUNDS")
+                .build();
+
+        assertThat(roundTrip(event, BalanceUpdateFailedEvent.class)).isEqualTo(event);
+    }
+
+    @Test
+    void roundTripsNullFields() throws IOException {
+        assertThat(roundTrip(new BalanceUpdateRequestedEvent(), BalanceUpdateRequestedEvent.class))
+                .isEqualTo(new BalanceUpdateRequestedEvent());
+        assertThat(roundTrip(new BalanceUpdatedEvent(), BalanceUpdatedEvent.class))
+                .isEqualTo(new BalanceUpdatedEvent());
+        assertThat(roundTrip(new BalanceUpdateFailedEvent(), BalanceUpdateFailedEvent.class))
+                .isEqualTo(new BalanceUpdateFailedEvent());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"100", "100.00", "1E+3", "0.000000001", "-98765432109876543210.123456789"})
+    void preservesDecimalScale(String amount) throws IOException {
+        BalanceUpdatedEvent event = BalanceUpdatedEvent.builder().newBalance(new BigDecimal(amount)).build();
+
+        BigDecimal decoded = roundTrip(event, BalanceUpdatedEvent.class).getNewBalance();
+
+        assertThat(decoded.unscaledValue()).isEqualTo(new BigDecimal(amount).unscaledValue());
+        assertThat(decoded.scale()).isEqualTo(new BigDecimal(amount).scale());
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] data = codec.encode(BalanceUpdatedEvent.builder().sagaId("saga-1").build());
+        data[0] = 99;
+
+        assertThatThrownBy(() -> codec.decode(data, SagaEventCodec.CONTENT_TYPE_BINARY, BalanceUpdatedEvent.class))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("schema version");
+    }
+
+    @Test
+    void rejectsUnknownType() {
+        byte[] data = codec.encode(BalanceUpdatedEvent.builder().sagaId("saga-1").build());
+        data[1] = 99;
+
+        assertThatThrownBy(() -> codec.decode(data, SagaEventCodec.CONTENT_TYPE_BINARY, BalanceUpdatedEvent.class))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unknown Saga event type");
+    }
+
+    @Test
+    void rejectsMismatchedType() {
+        byte[] data = codec.encode(BalanceUpdatedEvent.builder().sagaId("saga-1").build());
+
+        assertThatThrownBy(() -> codec.decode(data, null, BalanceUpdateFailedEvent.class))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Expected BalanceUpdateFailedEvent");
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        byte[] data = codec.encode(BalanceUpdateRequestedEvent.builder()
+                .sagaId("saga-1")
+                .operationId(Long.MAX_VALUE)
+                .login("user")
+                .currency("RUB")
+                .amount(new BigDecimal("10.00"))
+                .operationType("WITHDRAW")
+                .build());
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThatThrownBy(() -> codec.decode(truncated, SagaEventCodec.CONTENT_TYPE_BINARY,
+                    BalanceUpdateRequestedEvent.class))
+                    .as("truncated to %d of %d bytes", length, data.length)
+                    .isInstanceOf(EOFException.class);
+        }
+    }
+
+    private <T> T roundTrip(T event, Class<T> type) throws IOException {
+        byte[] data = codec.encode(event);
+        assertThat(data[0]).isEqualTo(SagaEventCodec.SCHEMA_VERSION);
+        return codec.decode(data, null, type);
+    }
+}
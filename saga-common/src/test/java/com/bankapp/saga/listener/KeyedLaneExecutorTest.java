@@ -0,0 +1,171 @@
+package com.bankapp.saga.listener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link KeyedLaneExecutor}: порядок внутри ключа, параллельность между ключами,
+ * устойчивость полосы к ошибкам обработчика и дообработка очередей при остановке.
+ */
+class KeyedLaneExecutorTest {
+
+    private static final int LANES = 4;
+
+    private KeyedLaneExecutor<Item> executor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void keepsFifoOrderWithinKey() throws InterruptedException {
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(4 * 1000);
+        executor = executor(8, batch -> batch.forEach(item -> {
+            seen.computeIfAbsent(item.key(), k -> Collections.synchronizedList(new ArrayList<>())).add(item.seq());
+            done.countDown();
+        }));
+
+        for (int seq = 0; seq < 1000; seq++) {
+            for (String key : List.of("alice", "bob", "carol", "dave")) {
+                executor.submit(key, new Item(key, seq));
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(seen).hasSize(4);
+        seen.values().forEach(order -> assertThat(order).isSorted().hasSize(1000));
+    }
+
+    @Test
+    void processesDifferentLanesInParallel() throws InterruptedException {
+        String blockedKey = "alice";
+        String otherKey = keyInOtherLane(blockedKey);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherProcessed = new CountDownLatch(1);
+        executor = executor(1, batch -> batch.forEach(item -> {
+            if (item.key().equals(blockedKey)) {
+                await(release);
+            } else {
+                otherProcessed.countDown();
+            }
+        }));
+
+        executor.submit(blockedKey, new Item(blockedKey, 0));
+        executor.submit(otherKey, new Item(otherKey, 0));
+
+        try {
+            assertThat(otherProcessed.await(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void failedBatchDoesNotStallLane() throws InterruptedException {
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        executor = executor(1, batch -> batch.forEach(item -> {
+            if (item.seq() == 0) {
+                throw new IllegalStateException("boom");
+            }
+            processed.add(item.seq());
+            done.countDown();
+        }));
+
+        executor.submit("alice", new Item("alice", 0));
+        executor.submit("alice", new Item("alice", 1));
+        executor.submit("alice", new Item("alice", 2));
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed).containsExactly(1, 2);
+    }
+
+    @Test
+    void limitsBatchSize() throws InterruptedException {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+        executor = executor(10, batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(item -> done.countDown());
+        });
+
+        for (int seq = 0; seq < 100; seq++) {
+            executor.submit("alice", new Item("alice", seq));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(batchSizes).allSatisfy(size -> assertThat(size).isBetween(1, 10));
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(100);
+    }
+
+    @Test
+    void drainsQueuesOnShutdown() throws InterruptedException {
+        List<Item> processed = Collections.synchronizedList(new ArrayList<>());
+        executor = executor(1, batch -> {
+            sleep(2);
+            processed.addAll(batch);
+        });
+
+        for (int seq = 0; seq < 200; seq++) {
+            String key = "user-" + (seq % 8);
+            executor.submit(key, new Item(key, seq));
+        }
+        executor.shutdown(Duration.ofSeconds(10));
+
+        assertThat(processed).hasSize(200);
+        assertThat(executor.queuedCount()).isZero();
+        assertThatThrownBy(() -> executor.submit("alice", new Item("alice", 0)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static KeyedLaneExecutor<Item> executor(int maxBatchSize, Consumer<List<Item>> handler) {
+        return new KeyedLaneExecutor<>("test-lane", LANES, 1024, false,
+                maxBatchSize, Duration.ofMillis(5), handler);
+    }
+
+    private static String keyInOtherLane(String key) {
+        int lane = Math.floorMod(key.hashCode(), LANES);
+        for (int i = 0; ; i++) {
+            String candidate = "user-" + i;
+            if (Math.floorMod(candidate.hashCode(), LANES) != lane) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Item(String key, int seq) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.bankapp.saga.listener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link MicroBatcher}: пачка уходит по размеру или по linger, ошибка обработчика
+ * не останавливает приём, накопленное дообрабатывается при остановке.
+ */
+class MicroBatcherTest {
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    private MicroBatcher<Integer> batcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (batcher != null) {
+            batcher.shutdown(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void flushesFullBatchWithoutWaitingForLinger() throws InterruptedException {
+        CountDownLatch flushed = new CountDownLatch(1);
+        batcher = batcher(3, Duration.ofSeconds(30), batch -> {
+            batches.add(batch);
+            flushed.countDown();
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            batcher.submit(i);
+        }
+
+        assertThat(flushed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(batches).containsExactly(List.of(0, 1, 2));
+    }
+
+    @Test
+    void flushesPartialBatchAfterLinger() throws InterruptedException {
+        CountDownLatch flushed = new CountDownLatch(1);
+        Duration linger = Duration.ofMillis(200);
+        batcher = batcher(100, linger, batch -> {
+            batches.add(batch);
+            flushed.countDown();
+        });
+
+        long start = System.nanoTime();
+        batcher.submit(1);
+        batcher.submit(2);
+
+        assertThat(flushed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(linger);
+        assertThat(batches).containsExactly(List.of(1, 2));
+    }
+
+    @Test
+    void keepsProcessingAfterHandlerFailure() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        batcher = batcher(1, Duration.ZERO, batch -> {
+            if (batch.contains(0)) {
+                throw new IllegalStateException("boom");
+            }
+            batches.add(batch);
+            done.countDown();
+        });
+
+        batcher.submit(0);
+        batcher.submit(1);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(batches).containsExactly(List.of(1));
+    }
+
+    @Test
+    void drainsQueueOnShutdown() throws InterruptedException {
+        batcher = batcher(10, Duration.ofMillis(50), batches::add);
+
+        for (int i = 0; i < 95; i++) {
+            batcher.submit(i);
+        }
+        batcher.shutdown(Duration.ofSeconds(5));
+
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(10));
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(95);
+        assertThat(batcher.queuedCount()).isZero();
+        assertThatThrownBy(() -> batcher.submit(0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static MicroBatcher<Integer> batcher(int maxBatchSize, Duration linger, Consumer<List<Integer>> handler) {
+        return new MicroBatcher<>("test-batcher", 1000, maxBatchSize, linger, handler);
+    }
+}
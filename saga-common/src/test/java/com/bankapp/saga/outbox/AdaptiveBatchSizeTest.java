@@ -0,0 +1,80 @@
+package com.bankapp.saga.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link AdaptiveBatchSize}: уменьшение при медленной публикации, рост на полных пачках, границы.
+ */
+class AdaptiveBatchSizeTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofMillis(500).toNanos();
+
+    private final AdaptiveBatchSize batchSize = new AdaptiveBatchSize(10, 100, Duration.ofMillis(200));
+
+    @Test
+    void startsAtMinimum() {
+        assertThat(batchSize.get()).isEqualTo(10);
+        assertThat(batchSize.max()).isEqualTo(100);
+    }
+
+    @Test
+    void doublesOnFullFastBatchUpToMaximum() {
+        assertThat(batchSize.adjust(10, 10, FAST)).isEqualTo(20);
+        assertThat(batchSize.adjust(20, 20, FAST)).isEqualTo(40);
+        assertThat(batchSize.adjust(40, 40, FAST)).isEqualTo(80);
+        assertThat(batchSize.adjust(80, 80, FAST)).isEqualTo(100);
+        assertThat(batchSize.adjust(100, 100, FAST)).isEqualTo(100);
+    }
+
+    @Test
+    void keepsSizeOnPartialBatch() {
+        grow(40);
+
+        assertThat(batchSize.adjust(40, 39, FAST)).isEqualTo(40);
+    }
+
+    @Test
+    void halvesOnSlowPublishDownToMinimum() {
+        grow(80);
+
+        assertThat(batchSize.adjust(80, 80, SLOW)).isEqualTo(40);
+        assertThat(batchSize.adjust(40, 12, SLOW)).isEqualTo(20);
+        assertThat(batchSize.adjust(20, 20, SLOW)).isEqualTo(10);
+        assertThat(batchSize.adjust(10, 10, SLOW)).isEqualTo(10);
+    }
+
+    @Test
+    void concurrentFullBatchesDoubleOnce() {
+        // Два обработчика взяли пачки по 10, оба вернулись полными
+        assertThat(batchSize.adjust(10, 10, FAST)).isEqualTo(20);
+        assertThat(batchSize.adjust(10, 10, FAST)).isEqualTo(20);
+    }
+
+    @Test
+    void slowPublishOfStaleSizeDoesNotGrowCurrentSize() {
+        grow(80);
+
+        // Медленная пачка размера 20, взятая до роста: 80 -> 10
+        assertThat(batchSize.adjust(20, 20, SLOW)).isEqualTo(10);
+    }
+
+    @Test
+    void maximumBelowMinimumIsRaisedToMinimum() {
+        AdaptiveBatchSize fixed = new AdaptiveBatchSize(10, 5, Duration.ofMillis(200));
+
+        assertThat(fixed.max()).isEqualTo(10);
+        assertThat(fixed.adjust(10, 10, FAST)).isEqualTo(10);
+    }
+
+    private void grow(int target) {
+        while (batchSize.get() < target) {
+            batchSize.adjust(batchSize.get(), batchSize.get(), FAST);
+        }
+        assertThat(batchSize.get()).isEqualTo(target);
+    }
+}
@@ -0,0 +1,43 @@
+package com.bankapp.saga.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link OutboxProcessor#ownedPartitions}: каждая партиция принадлежит ровно одному обработчику.
+ */
+class OutboxProcessorPartitionsTest {
+
+    @Test
+    void assignsPartitionByModulo() {
+        assertThat(OutboxProcessor.ownedPartitions(0, 3, 8)).containsExactly(0, 3, 6);
+        assertThat(OutboxProcessor.ownedPartitions(1, 3, 8)).containsExactly(1, 4, 7);
+        assertThat(OutboxProcessor.ownedPartitions(2, 3, 8)).containsExactly(2, 5);
+    }
+
+    @Test
+    void singleWorkerOwnsAllPartitions() {
+        assertThat(OutboxProcessor.ownedPartitions(0, 1, 4)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void extraWorkersStayIdle() {
+        assertThat(OutboxProcessor.ownedPartitions(1, 4, 2)).containsExactly(1);
+        assertThat(OutboxProcessor.ownedPartitions(3, 4, 2)).isEmpty();
+    }
+
+    @Test
+    void partitionsAreCoveredExactlyOnce() {
+        for (int workers = 1; workers <= 20; workers++) {
+            List<Integer> all = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                all.addAll(OutboxProcessor.ownedPartitions(worker, workers, 16));
+            }
+            assertThat(all).as("%d workers", workers).hasSize(16).doesNotHaveDuplicates();
+        }
+    }
+}